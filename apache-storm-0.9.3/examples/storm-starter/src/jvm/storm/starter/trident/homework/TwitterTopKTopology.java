@@ -13,7 +13,6 @@ import storm.starter.trident.homework.state.TopKStateFactory;
 import storm.starter.trident.homework.state.TopKStateUpdater;
 import storm.trident.TridentState;
 import storm.trident.TridentTopology;
-import storm.trident.operation.builtin.FilterNull;
 
 /**
  * Main class that creates the Storm Topology and DRPC Client to query for the topk hashtags from twitter stream.
@@ -53,13 +52,12 @@ public class TwitterTopKTopology {
         TopKQuery topKQuery = new TopKQuery();
 
         TridentState topKDBMS = topology.newStream("tweets", spoutTweets)
-                // Parses the tweets out from Twitters JSON response and returns the hashtags.
+                // Parses the tweets out from Twitters JSON response and returns the list of their hashtags.
+                // Tweets with no hashtags are dropped here.
                 .each(new Fields("tweet"), new ParseTweet(), new Fields("hashtags"))
-                // Normalizes the hashtags and filters out hashtags in english and converts everything to lowercase.
+                // Normalizes the hashtags by case folding them and dropping punctuation, in any script.
                 // Thus making #HAPPY and #happy as the same.
                 .each(new Fields("hashtags"), new LowerCaseFunction(), new Fields("lowercase_words"))
-                // This filters the tweets with no hashtags.
-                .each(new Fields("lowercase_words"), new FilterNull())
                 // Store the hashtags into the created state and also maintain a top-k priority queue.
                 .partitionPersist(factory, new Fields("lowercase_words"), updater);
 
@@ -0,0 +1,60 @@
+package storm.starter.trident.homework.function;
+
+/**
+ * Folds hashtags so that e.g. #Happy, #HAPPY and #happy! count as one: letters are
+ * case folded, and everything but letters, digits and combining marks is dropped.
+ * Unlike an ASCII-only rule it keeps tags in any script, e.g. German or Japanese ones.
+ *
+ * A tag that is normalized already is returned as is, without allocating.
+ */
+public final class HashtagNormalizer {
+
+    private HashtagNormalizer() {
+    }
+
+    public static String normalize(String tag) {
+        int length = tag.length();
+        int i = 0;
+        // Most tags are normalized already, only copy from the first code point that changes.
+        while (i < length) {
+            int c = tag.codePointAt(i);
+            if (!isKept(c) || fold(c) != c) {
+                break;
+            }
+            i += Character.charCount(c);
+        }
+        if (i == length) {
+            return tag;
+        }
+        StringBuilder out = new StringBuilder(length);
+        out.append(tag, 0, i);
+        while (i < length) {
+            int c = tag.codePointAt(i);
+            if (isKept(c)) {
+                out.appendCodePoint(fold(c));
+            }
+            i += Character.charCount(c);
+        }
+        return out.toString();
+    }
+
+    private static boolean isKept(int c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        if (Character.isLetterOrDigit(c)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        // Vowel signs and the like, without which e.g. Devanagari tags would be garbled.
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    // Simple case folding: upper then lower case maps variants such as the final sigma together.
+    private static int fold(int c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -5,20 +5,36 @@ import storm.trident.operation.BaseFunction;
 import storm.trident.operation.TridentCollector;
 import storm.trident.tuple.TridentTuple;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * This function converts the input String into a lowercase characters.
- * Also filters out hashtags which are not in english.
+ * This function normalizes the hashtags of a tweet with HashtagNormalizer, so that
+ * #HAPPY and #happy count as the same, and drops the tags that normalize to nothing.
+ * The list is passed on as is when every tag was normalized already.
  * Created by Parth Satra on 3/1/15.
  */
 public class LowerCaseFunction extends BaseFunction {
 
     @Override
+    @SuppressWarnings("unchecked")
     public void execute(TridentTuple tuple, TridentCollector collector) {
-        String text = tuple.getString(0);
-        // Replace the non english characters with empty string
-        text = text.replaceAll("[^a-zA-Z0-9]", "");
-        // Converts the hashtag to lowercase
-        String output = text.toLowerCase();
-        collector.emit(new Values(output));
+        List<String> hashtags = (List<String>) tuple.get(0);
+        List<String> output = hashtags;
+        for (int i = 0; i < hashtags.size(); i++) {
+            String tag = hashtags.get(i);
+            String normalized = HashtagNormalizer.normalize(tag);
+            if (output == hashtags && (normalized != tag || normalized.length() == 0)) {
+                // First tag that changes or goes, copy the ones before it.
+                output = new ArrayList<String>(hashtags.size());
+                output.addAll(hashtags.subList(0, i));
+            }
+            if (output != hashtags && normalized.length() > 0) {
+                output.add(normalized);
+            }
+        }
+        if (!output.isEmpty()) {
+            collector.emit(new Values(output));
+        }
     }
 }
@@ -6,7 +6,9 @@ import storm.trident.operation.TridentCollector;
 import storm.trident.tuple.TridentTuple;
 import twitter4j.HashtagEntity;
 import twitter4j.Status;
-import twitter4j.User;
+
+import java.util.ArrayList;
+import java.util.List;
 
 // Local functions
 
@@ -22,15 +24,20 @@ public class ParseTweet extends BaseFunction {
         Status parsed = (Status)tuple.get(0);
         // Fetch all the hashtags from the tweet
         HashtagEntity entities[] = parsed.getHashtagEntities();
-        StringBuilder sb = new StringBuilder();
-        // Create a space separated String of hashtags from a single tweet.
+        if (entities == null || entities.length == 0) {
+            return;
+        }
+        // Collect the non blank hashtags of a single tweet.
+        List<String> hashtags = new ArrayList<String>(entities.length);
         for(HashtagEntity entity : entities) {
             String hashtag = entity.getText();
             if(hashtag != null && hashtag.trim().length() != 0) {
-                sb.append(hashtag+" ");
+                hashtags.add(hashtag);
             }
         }
-        // Emit the constructed string of hashtags
-        collector.emit(new Values(sb.toString().trim()));
+        // Emit the list of hashtags, tweets without any emit nothing.
+        if (!hashtags.isEmpty()) {
+            collector.emit(new Values(hashtags));
+        }
     }
 }
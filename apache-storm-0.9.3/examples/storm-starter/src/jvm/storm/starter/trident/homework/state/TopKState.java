@@ -18,8 +18,8 @@ public class TopKState implements State, Serializable{
     private int windowSize;
     // Topk hashtags list at any given time.
     Queue<TopTweet> heap = new PriorityQueue<TopTweet>();
-    // Sliding window which consists of the twweets during that sliding window time
-    Queue<List<TopTweet>> slidingWindow = new LinkedList<List<TopTweet>>();
+    // Sliding window which consists of the hashtags of each tweet during that sliding window time
+    Queue<List<String>> slidingWindow = new LinkedList<List<String>>();
     // A dynamic data structure that maintains the count of all the hashtags in the sliding window.
     Map<String, Long> sketch = new HashMap<String, Long>();
 
@@ -27,7 +27,7 @@ public class TopKState implements State, Serializable{
         this.topK = topK;
         this.windowSize = windowSize;
         heap = new PriorityQueue<TopTweet>(topK);
-        slidingWindow = new LinkedList<List<TopTweet>>();
+        slidingWindow = new LinkedList<List<String>>();
     }
 
     @Override
@@ -46,46 +46,55 @@ public class TopKState implements State, Serializable{
         if(items == null || items.size() == 0) {
             return;
         }
+        List<String> tags = new ArrayList<String>(items.size());
+        for(TopTweet item : items) {
+            tags.add(item.getHashTag());
+        }
+        addTags(tags);
+    }
+
+    /**
+     * Adds the hashtags of one tweet to the state and updates the sliding window.
+     * The list is kept in the window, it must not be modified afterwards.
+     * @param tags Normalized hashtags of the tweet.
+     */
+    public void addTags(List<String> tags) {
+        if(tags == null || tags.size() == 0) {
+            return;
+        }
 
         // Removes the oldest tweet from the sliding window.
         if(slidingWindow.size() == windowSize) {
-            List<TopTweet> oldList = slidingWindow.poll();
+            List<String> oldTags = slidingWindow.poll();
             // Update the topk list for the removed hashtags with the old tweet.
-            for(TopTweet oldTweet : oldList) {
+            for(String oldTag : oldTags) {
                 // Update the sketch to remove the old hashtags
-                if(sketch.containsKey(oldTweet.getHashTag())) {
-                    long count = sketch.remove(oldTweet.getHashTag());
-                    count --;
+                Long previous = sketch.remove(oldTag);
+                if(previous != null) {
+                    long count = previous - 1;
                     if(count > 0) {
-                        sketch.put(oldTweet.getHashTag(), count);
+                        sketch.put(oldTag, count);
                     }
-                    // Update the topk queue as well.
-                    if(heap.contains(oldTweet)) {
-                        heap.remove(oldTweet);
-                        if(count > 0) {
-                            heap.add(new TopTweet(oldTweet.getHashTag(), count));
-                        }
+                    // Update the topk queue as well, TopTweets are equal by hashtag.
+                    TopTweet oldTweet = new TopTweet(oldTag, count);
+                    if(heap.remove(oldTweet) && count > 0) {
+                        heap.add(oldTweet);
                     }
                 }
             }
         }
 
         // Adds the hastags of the new tweet into the sliding window.
-        slidingWindow.add(items);
-        // Update the steck and topk list with the newly added tweet in the sliding window.
-        for(TopTweet tweet : items) {
-            long count = 1;
-            if(sketch.containsKey(tweet.getHashTag())) {
-                count = sketch.remove(tweet.getHashTag());
-                sketch.put(tweet.getHashTag(), count + 1);
-            } else {
-                sketch.put(tweet.getHashTag(), count);
-            }
+        slidingWindow.add(tags);
+        // Update the sketch and topk list with the newly added tweet in the sliding window.
+        for(String tag : tags) {
+            Long previous = sketch.get(tag);
+            long count = previous == null ? 1 : previous + 1;
+            sketch.put(tag, count);
 
-            if(heap.contains(tweet)) {
-                heap.remove(tweet);
-            }
-            heap.add(new TopTweet(tweet.getHashTag(), count));
+            TopTweet tweet = new TopTweet(tag, count);
+            heap.remove(tweet);
+            heap.add(tweet);
         }
 
         // Keep only the configured topk hashtag list.
@@ -4,7 +4,6 @@ import storm.trident.operation.TridentCollector;
 import storm.trident.state.BaseStateUpdater;
 import storm.trident.tuple.TridentTuple;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -14,21 +13,11 @@ import java.util.List;
 public class TopKStateUpdater extends BaseStateUpdater<TopKState> {
 
     @Override
+    @SuppressWarnings("unchecked")
     public void updateState(TopKState topKState, List<TridentTuple> list, TridentCollector tridentCollector) {
         for(TridentTuple tuple : list) {
-            // Gets all the space separated hashtags.
-            String hashTags = tuple.getString(0);
-            String[] tag = hashTags.split(" ");
-            // Creates the list to be added to the state
-            List<TopTweet> tweetList = new ArrayList<TopTweet>();
-            for(String t : tag) {
-                if(t != null && t.trim().length() != 0) {
-                    TopTweet tt = new TopTweet(t, 1);
-                    tweetList.add(tt);
-                }
-            }
-            // Adds the list to the state.
-            topKState.add(tweetList);
+            // Adds the normalized hashtags of one tweet to the state.
+            topKState.addTags((List<String>) tuple.get(0));
         }
     }
 }
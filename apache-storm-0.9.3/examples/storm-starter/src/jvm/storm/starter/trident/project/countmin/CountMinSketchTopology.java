@@ -7,15 +7,22 @@ import backtype.storm.generated.StormTopology;
 import backtype.storm.tuple.Fields;
 import storm.starter.trident.project.countmin.state.CountMinSketchStateFactory;
 import storm.starter.trident.project.countmin.state.CountMinSketchUpdater;
+import storm.starter.trident.project.countmin.state.FrequencyQuery;
+import storm.starter.trident.project.countmin.state.KeyedCountMinSketchStateFactory;
+import storm.starter.trident.project.countmin.state.KeyedCountMinSketchUpdater;
 import storm.starter.trident.project.countmin.state.TopKQuery;
-import storm.starter.trident.project.filters.StopWordBloomFilter;
-import storm.starter.trident.project.functions.LowerCaseFunction;
+import storm.starter.trident.project.countmin.state.TrendingQuery;
+import storm.starter.trident.project.filters.DuplicateTweetFilter;
+import storm.starter.trident.project.filters.StopWordFilter;
+import storm.starter.trident.project.functions.ExtractContents;
+import storm.starter.trident.project.functions.ParseRawTweet;
 import storm.starter.trident.project.functions.ParseTweet;
-import storm.starter.trident.project.functions.SentenceBuilder;
+import storm.starter.trident.project.functions.PhraseTokenizer;
+import storm.starter.trident.project.functions.TweetTokenizer;
 import storm.starter.trident.project.spouts.TwitterSampleSpout;
+import storm.trident.Stream;
 import storm.trident.TridentState;
 import storm.trident.TridentTopology;
-import storm.trident.operation.builtin.FilterNull;
 import storm.trident.testing.Split;
 
 /**
@@ -26,13 +33,36 @@ import storm.trident.testing.Split;
 public class CountMinSketchTopology {
 
     public static StormTopology buildTopology(String args[], LocalDRPC drpc) {
+        return buildTopology(args, drpc, false);
+    }
+
+    /**
+     * With trackContents, the hashtags, mentioned accounts, urls, sources and places
+     * of the tweets are counted as well, each in a top-k of its own, and returned
+     * together by the "trends_drpc" call. This needs the full twitter4j Status of
+     * every tweet, so the words are then parsed from it instead of the raw JSON.
+     */
+    public static StormTopology buildTopology(String args[], LocalDRPC drpc, boolean trackContents) {
+        return buildTopology(args, drpc, trackContents, false);
+    }
+
+    /**
+     * With trackPhrases, the bigrams and trigrams of the tweets' text are counted
+     * too, see PhraseTokenizer, in a sketch and top-k of their own returned by the
+     * "top_phrases_drpc" call.
+     */
+    public static StormTopology buildTopology(String args[], LocalDRPC drpc, boolean trackContents,
+                                              boolean trackPhrases) {
 
         TridentTopology topology = new TridentTopology();
 
-        // This sets the size of the count-min sketch and the k value for the top-k.
+        // This sets the accuracy of the count-min sketch and the k value for the top-k.
+        // Estimates are off by at most 0.1% of all the words counted, with 99% confidence,
+        // which takes a 7x2048 table. The counters of a partition may take up to 1 MB.
         // In this case the k value is 5.
-        int width = 100;
-        int depth = 150;
+        double eps = 0.001;
+        double confidence = 0.99;
+        long memoryBudget = 1 << 20;
         int seed = 100;
         int k = 5;
 
@@ -49,26 +79,40 @@ public class CountMinSketchTopology {
         // Create Twitter's spout
         TwitterSampleSpout spoutTweets = new TwitterSampleSpout(consumerKey, consumerSecret,
                 accessToken, accessTokenSecret, topicWords);
+        if (!trackContents) {
+            spoutTweets.withRawJson();
+        }
 
-        CountMinSketchStateFactory factory = new CountMinSketchStateFactory(depth, width, seed, k);
+        CountMinSketchStateFactory factory = new CountMinSketchStateFactory(eps, confidence, seed, k)
+                .setMemoryBudget(memoryBudget);
         CountMinSketchUpdater countMinSketchUpdater = new CountMinSketchUpdater();
-        StopWordBloomFilter bloomFilter = new StopWordBloomFilter();
+        // Stop words and spam hashtags may be listed in a local file, or a directory of *.txt
+        // files, named by STOP_WORD_LISTS. It is checked for changes every 10 seconds.
+        String stopWordLists = System.getenv("STOP_WORD_LISTS");
+        StopWordFilter stopWordFilter = stopWordFilter(stopWordLists);
         TopKQuery topKQuery = new TopKQuery();
+        FrequencyQuery frequencyQuery = new FrequencyQuery();
+
+        Stream tweets = topology.newStream("tweets", spoutTweets);
+        if (trackContents) {
+            // Parses the tweets out from Twitters JSON response.
+            tweets = tweets.each(new Fields("tweet"), new ParseTweet(), new Fields("text", "tweetId", "user"));
+        } else {
+            // Parses the text, id and user of the tweets out of Twitter's raw JSON, skipping the rest.
+            tweets = tweets.each(new Fields("tweet"), new ParseRawTweet("text", "id", "user.screen_name"),
+                    new Fields("text", "tweetId", "user"));
+        }
 
-        TridentState countMinDBMS = topology.newStream("tweets", spoutTweets)
-                // Parses the tweets out from Twitters JSON response.
-                .each(new Fields("tweet"), new ParseTweet(), new Fields("text", "tweetId", "user"))
+        tweets = tweets
                         //.each(new Fields("text","tweetId","user"), new PrintFilter("PARSED TWEETS:"))
-                // Constructs a sentence containing username and text from the twitter tweets.
-                .each(new Fields("text", "tweetId", "user"), new SentenceBuilder(), new Fields("sentence"))
-                // Splits the text into individual words.
-                .each(new Fields("sentence"), new Split(), new Fields("words"))
-                // Filters and converts words into lowercase characters.
-                .each(new Fields("words"), new LowerCaseFunction(), new Fields("lowercase_words"))
-                // Ignores words with NULL String.
-                .each(new Fields("lowercase_words"), new FilterNull())
-                // Apply bloom Filter to remaining words to further filter the stop words.
-                .each(new Fields("lowercase_words"), bloomFilter)
+                // Drops tweets seen again within the last hour, tracked in six 10 minute intervals
+                // of up to 250000 tweets each, about 4.5 MB of bits.
+                .each(new Fields("tweetId"), new DuplicateTweetFilter(6, 10 * 60 * 1000L, 250000, 0.00001));
+
+        TridentState countMinDBMS = tweets
+                // Splits the user and text into lowercase words, dropping short words and the
+                // stop words, those of resources/stopwords.txt unless STOP_WORD_LISTS is set.
+                .each(new Fields("text", "user"), new TweetTokenizer(stopWordFilter), new Fields("lowercase_words"))
                 // Store the words into count-min sketch and also maintain a top-k priority queue.
                 .partitionPersist(factory, new Fields("lowercase_words"), countMinSketchUpdater);
 
@@ -79,10 +123,66 @@ public class CountMinSketchTopology {
                 .stateQuery(countMinDBMS, topKQuery, new Fields("top"))
                 .project(new Fields("top"));
 
+        topology.newDRPCStream("frequency_drpc", drpc)
+                .parallelismHint(1)
+                // Splits the space separated words of the request.
+                .each(new Fields("args"), new Split(), new Fields("word"))
+                // Returns the estimated count of every word and its error bound.
+                .stateQuery(countMinDBMS, new Fields("word"), frequencyQuery, new Fields("count", "error"))
+                .project(new Fields("word", "count", "error"));
+
+        if (trackPhrases) {
+            // Phrases are far more diverse than words, nearly all of them seen once, so
+            // they get a sketch of their own with up to 512 KB of counters. Conservative
+            // update keeps that long tail from inflating the estimates of the top phrases.
+            CountMinSketchStateFactory phraseFactory = new CountMinSketchStateFactory(eps, confidence, seed, k)
+                    .setMemoryBudget(memoryBudget / 2)
+                    .setConservativeUpdate(true);
+
+            TridentState phraseDBMS = tweets
+                    // Splits the text into its lowercase phrases of 2 and 3 words, which never
+                    // span a stop word. The stop words it meets are counted in a metric of its own.
+                    .each(new Fields("text"),
+                            new PhraseTokenizer(stopWordFilter(stopWordLists).setHitsMetric("phrase_stop_word_hits")),
+                            new Fields("phrase"))
+                    .partitionPersist(phraseFactory, new Fields("phrase"), new CountMinSketchUpdater());
+
+            topology.newDRPCStream("top_phrases_drpc", drpc)
+                    .parallelismHint(1)
+                    // Returns the list of top-k phrases with their estimated counts.
+                    .stateQuery(phraseDBMS, topKQuery, new Fields("top"))
+                    .project(new Fields("top"));
+        }
+
+        if (trackContents) {
+            // Every content type gets a sketch and top-k of its own, sized like the one of the
+            // words but with up to 256 KB of counters each, for at most 16 content types.
+            KeyedCountMinSketchStateFactory contentFactory = new KeyedCountMinSketchStateFactory(
+                    new CountMinSketchStateFactory(eps, confidence, seed, k).setMemoryBudget(memoryBudget / 4), 16);
+
+            TridentState contentDBMS = tweets
+                    // Lists the distinct hashtags, mentions, urls, sources and places of each tweet.
+                    .each(new Fields("tweet"), new ExtractContents(), new Fields("contentType", "contentName"))
+                    .partitionPersist(contentFactory, new Fields("contentType", "contentName"),
+                            new KeyedCountMinSketchUpdater());
+
+            topology.newDRPCStream("trends_drpc", drpc)
+                    .parallelismHint(1)
+                    // Returns the top-k of the space separated content types requested, of all if none.
+                    .stateQuery(contentDBMS, new Fields("args"), new TrendingQuery(), new Fields("trends"))
+                    .project(new Fields("trends"));
+        }
+
         return topology.build();
 
     }
 
+    private static StopWordFilter stopWordFilter(String stopWordLists) {
+        return stopWordLists == null
+                ? new StopWordFilter()
+                : StopWordFilter.watching(stopWordLists, 10 * 1000L);
+    }
+
     public static void main(String[] args) throws Exception {
         Config conf = new Config();
         conf.setDebug(false);
@@ -90,12 +190,26 @@ public class CountMinSketchTopology {
 
         LocalCluster cluster = new LocalCluster();
         LocalDRPC drpc = new LocalDRPC();
-        cluster.submitTopology("top_K", conf, buildTopology(args, drpc));
+        // Set TRACK_CONTENTS to count the hashtags, mentions, urls and places of the tweets too.
+        boolean trackContents = System.getenv("TRACK_CONTENTS") != null;
+        // Set TRACK_PHRASES to count the phrases of 2 and 3 words of the tweets too.
+        boolean trackPhrases = System.getenv("TRACK_PHRASES") != null;
+        cluster.submitTopology("top_K", conf, buildTopology(args, drpc, trackContents, trackPhrases));
 
         while(true){
             // DRPC Call for getting the Top-K words.
             // This prints the top-k words along wth its frequencies present in the count-min sketch.
             System.out.println("DRPC RESULT:" + drpc.execute("top_K_drpc", ""));
+            // DRPC Call for the frequencies of a few words, passed as one space separated string.
+            System.out.println("DRPC FREQUENCIES:" + drpc.execute("frequency_drpc", "love happy music"));
+            if (trackPhrases) {
+                // DRPC Call for the Top-K phrases.
+                System.out.println("DRPC PHRASES:" + drpc.execute("top_phrases_drpc", ""));
+            }
+            if (trackContents) {
+                // DRPC Call for the top-k of every content type.
+                System.out.println("DRPC TRENDS:\n" + drpc.execute("trends_drpc", ""));
+            }
             Thread.sleep(3000);
         }
 
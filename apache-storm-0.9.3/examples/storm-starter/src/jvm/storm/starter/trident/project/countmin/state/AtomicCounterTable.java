@@ -0,0 +1,39 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter table backed by one row-major AtomicLongArray, so several threads can
+ * add to it at once without losing increments and read it without locking.
+ */
+class AtomicCounterTable extends CounterTable {
+
+    private static final long serialVersionUID = -2290381528851226401L;
+
+    final AtomicLongArray cells;
+
+    AtomicCounterTable(int depth, int width) {
+        super(depth, width);
+        this.cells = new AtomicLongArray(depth * width);
+    }
+
+    @Override
+    public Storage storage() {
+        return Storage.ATOMIC;
+    }
+
+    @Override
+    public long get(int row, int col) {
+        return cells.get(row * width + col);
+    }
+
+    @Override
+    public void set(int row, int col, long value) {
+        cells.set(row * width + col, value);
+    }
+
+    @Override
+    public long add(int row, int col, long delta) {
+        return cells.addAndGet(row * width + col, delta);
+    }
+}
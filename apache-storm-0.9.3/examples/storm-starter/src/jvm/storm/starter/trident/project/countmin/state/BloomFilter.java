@@ -0,0 +1,233 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Bloom filter over a bit set packed into a long[], 64 bits per word.
+ * Strings and numbers, e.g. tweet ids, are hashed with Filter.getHashBuckets
+ * into a bucket array reused from call to call, so adding and testing an item
+ * allocates nothing.
+ *
+ * Filters of the same size and hash count can be merged with a bitwise OR, the
+ * result holds every item added to either of them.
+ */
+public class BloomFilter extends Filter {
+
+    private static final long serialVersionUID = -4296735137587542470L;
+
+    final int numBits;
+    final long[] bits;
+    // Bucket indexes of the item being added or tested, reused across calls.
+    transient int[] buckets;
+
+    public BloomFilter(int numBits, int hashCount) {
+        if (numBits <= 0 || hashCount <= 0) {
+            throw new IllegalArgumentException("Number of bits and hash count must be positive");
+        }
+        this.numBits = numBits;
+        this.hashCount = hashCount;
+        this.bits = new long[(numBits + 63) >>> 6];
+    }
+
+    /**
+     * Returns a filter sized to hold the given number of items with at most the
+     * given probability of reporting an item that was never added.
+     */
+    public static BloomFilter forExpectedItems(long expectedItems, double falsePositiveRate) {
+        int numBits = optimalNumBits(expectedItems, falsePositiveRate);
+        return new BloomFilter(numBits, optimalHashCount(expectedItems, numBits));
+    }
+
+    // m = -n ln p / (ln 2)^2
+    static int optimalNumBits(long expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected items must be positive and the false positive rate within (0, 1)");
+        }
+        double bits = -expectedItems * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        if (bits > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A filter for " + expectedItems + " items would not fit an array");
+        }
+        return Math.max(64, (int) Math.ceil(bits));
+    }
+
+    // k = m / n ln 2
+    static int optimalHashCount(long expectedItems, int numBits) {
+        return Math.max(1, (int) Math.round((double) numBits / expectedItems * Math.log(2)));
+    }
+
+    @Override
+    int buckets() {
+        return numBits;
+    }
+
+    int[] buckets(String key) {
+        return Filter.getHashBuckets(key, hashCount, numBits, scratch());
+    }
+
+    int[] buckets(long key) {
+        return Filter.getHashBuckets(key, hashCount, numBits, scratch());
+    }
+
+    private int[] scratch() {
+        if (buckets == null) {
+            buckets = new int[hashCount];
+        }
+        return buckets;
+    }
+
+    @Override
+    public void add(String key) {
+        set(buckets(key));
+    }
+
+    public void add(long key) {
+        set(buckets(key));
+    }
+
+    /**
+     * Adds the key and tells whether it may have been added before, in one pass
+     * over its bits. For duplicate suppression: a false return is certain to be
+     * the first occurrence, a true return is a duplicate with the confidence of
+     * the false positive rate.
+     */
+    public boolean addAndCheck(long key) {
+        return set(buckets(key));
+    }
+
+    public boolean addAndCheck(String key) {
+        return set(buckets(key));
+    }
+
+    @Override
+    public boolean isPresent(String key) {
+        return isSet(buckets(key));
+    }
+
+    public boolean isPresent(long key) {
+        return isSet(buckets(key));
+    }
+
+    // Returns true if every bit was set already.
+    boolean set(int[] buckets) {
+        boolean present = true;
+        for (int i = 0; i < hashCount; i++) {
+            int bucket = buckets[i];
+            long mask = 1L << bucket;
+            long word = bits[bucket >>> 6];
+            if ((word & mask) == 0) {
+                present = false;
+                bits[bucket >>> 6] = word | mask;
+            }
+        }
+        return present;
+    }
+
+    boolean isSet(int[] buckets) {
+        for (int i = 0; i < hashCount; i++) {
+            int bucket = buckets[i];
+            if ((bits[bucket >>> 6] & (1L << bucket)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds every item of the other filter to this one.
+     *
+     * @throws IllegalArgumentException if the filters differ in size or hash count
+     */
+    public void merge(BloomFilter other) {
+        checkCompatible(other);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other.bits[i];
+        }
+    }
+
+    void checkCompatible(BloomFilter other) {
+        if (other.numBits != numBits || other.hashCount != hashCount) {
+            throw new IllegalArgumentException("Cannot merge filters of different size or hash count");
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    /**
+     * Number of bits set.
+     */
+    public long cardinality() {
+        long count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Probability that an item never added is reported present, given the bits set so far.
+     */
+    public double falsePositiveRate() {
+        return Math.pow((double) cardinality() / numBits, hashCount);
+    }
+
+    /**
+     * Bytes used by the bits.
+     */
+    public long sizeInBytes() {
+        return (long) bits.length * 8;
+    }
+
+    @Override
+    int emptyBuckets() {
+        return (int) (numBits - cardinality());
+    }
+
+    private static final BloomFilterSerializer serializer_ = new BloomFilterSerializer();
+
+    public static ICompactSerializer<BloomFilter> serializer() {
+        return serializer_;
+    }
+
+    /**
+     * Writes the size and hash count followed by the words of the bit set.
+     */
+    static class BloomFilterSerializer implements ICompactSerializer<BloomFilter> {
+
+        static final int MAGIC = 0x424c4d46;
+        static final byte VERSION = 1;
+
+        @Override
+        public void serialize(BloomFilter filter, DataOutputStream dos) throws IOException {
+            dos.writeInt(MAGIC);
+            dos.writeByte(VERSION);
+            CountMinSketchStateSerializer.writeVarLong(dos, filter.numBits);
+            CountMinSketchStateSerializer.writeVarLong(dos, filter.hashCount);
+            for (long word : filter.bits) {
+                dos.writeLong(word);
+            }
+        }
+
+        @Override
+        public BloomFilter deserialize(DataInputStream dis) throws IOException {
+            if (dis.readInt() != MAGIC) {
+                throw new IOException("Not a serialized bloom filter");
+            }
+            byte version = dis.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported bloom filter version " + version);
+            }
+            int numBits = (int) CountMinSketchStateSerializer.readVarLong(dis);
+            int hashCount = (int) CountMinSketchStateSerializer.readVarLong(dis);
+            BloomFilter filter = new BloomFilter(numBits, hashCount);
+            for (int i = 0; i < filter.bits.length; i++) {
+                filter.bits[i] = dis.readLong();
+            }
+            return filter;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package storm.starter.trident.project.countmin.state;
+
+/**
+ * Compact counter table with 16 bit base counters in a char[].
+ */
+class Compact16CounterTable extends CompactCounterTable {
+
+    private static final long serialVersionUID = 4418874071645623373L;
+
+    final char[] cells;
+
+    Compact16CounterTable(int depth, int width) {
+        super(depth, width, Character.MAX_VALUE);
+        this.cells = new char[depth * width];
+    }
+
+    @Override
+    public Storage storage() {
+        return Storage.COMPACT_16;
+    }
+
+    @Override
+    int cellBytes() {
+        return 2;
+    }
+
+    @Override
+    long cell(int index) {
+        return cells[index];
+    }
+
+    @Override
+    void cell(int index, long value) {
+        cells[index] = (char) value;
+    }
+}
@@ -0,0 +1,36 @@
+package storm.starter.trident.project.countmin.state;
+
+/**
+ * Compact counter table with unsigned 32 bit base counters in an int[].
+ */
+class Compact32CounterTable extends CompactCounterTable {
+
+    private static final long serialVersionUID = -5204719315560744420L;
+
+    final int[] cells;
+
+    Compact32CounterTable(int depth, int width) {
+        super(depth, width, 0xffffffffL);
+        this.cells = new int[depth * width];
+    }
+
+    @Override
+    public Storage storage() {
+        return Storage.COMPACT_32;
+    }
+
+    @Override
+    int cellBytes() {
+        return 4;
+    }
+
+    @Override
+    long cell(int index) {
+        return cells[index] & 0xffffffffL;
+    }
+
+    @Override
+    void cell(int index, long value) {
+        cells[index] = (int) value;
+    }
+}
@@ -0,0 +1,110 @@
+package storm.starter.trident.project.countmin.state;
+
+/**
+ * Counter table with narrow unsigned base counters. A cell whose value does not fit
+ * is set to the saturated base value and its full value kept in an OverflowMap,
+ * and moves back into its base counter if the value falls into range again.
+ * Most cells of a wide sketch stay small, so the table takes a quarter or half
+ * of the memory of long counters with the same results.
+ */
+abstract class CompactCounterTable extends CounterTable {
+
+    private static final long serialVersionUID = -832004683215046139L;
+
+    // Base value of a cell whose value lives in the overflow map.
+    final long saturated;
+    final OverflowMap overflow = new OverflowMap();
+
+    CompactCounterTable(int depth, int width, long saturated) {
+        super(depth, width);
+        this.saturated = saturated;
+    }
+
+    abstract int cellBytes();
+
+    abstract long cell(int index);
+
+    abstract void cell(int index, long value);
+
+    @Override
+    public long get(int row, int col) {
+        int index = row * width + col;
+        long value = cell(index);
+        return value == saturated ? overflow.get(index) : value;
+    }
+
+    @Override
+    public void set(int row, int col, long value) {
+        int index = row * width + col;
+        store(index, cell(index), value);
+    }
+
+    @Override
+    public long add(int row, int col, long delta) {
+        int index = row * width + col;
+        long value = cell(index);
+        if (value != saturated) {
+            long sum = value + delta;
+            if (sum >= 0 && sum < saturated) {
+                cell(index, sum);
+                return sum;
+            }
+            store(index, value, sum);
+            return sum;
+        }
+        long sum = overflow.get(index) + delta;
+        store(index, value, sum);
+        return sum;
+    }
+
+    /**
+     * Merge forks call this on disjoint rows at the same time. Their base counters
+     * never overlap but the overflow map is shared by all rows, so a cell is only
+     * summed in place while it stays in range, and under the map's lock otherwise.
+     */
+    @Override
+    public void addRows(CounterTable other, int fromRow, int toRow) {
+        checkSameShape(other);
+        for (int i = fromRow; i < toRow; i++) {
+            for (int j = 0; j < width; j++) {
+                long delta = other.get(i, j);
+                int index = i * width + j;
+                long value = cell(index);
+                if (value != saturated) {
+                    long sum = value + delta;
+                    if (sum >= 0 && sum < saturated) {
+                        cell(index, sum);
+                        continue;
+                    }
+                }
+                synchronized (overflow) {
+                    add(i, j, delta);
+                }
+            }
+        }
+    }
+
+    private void store(int index, long base, long value) {
+        if (value >= 0 && value < saturated) {
+            if (base == saturated) {
+                overflow.remove(index);
+            }
+            cell(index, value);
+        } else {
+            cell(index, saturated);
+            overflow.put(index, value);
+        }
+    }
+
+    /**
+     * Number of cells whose value lives in the overflow map.
+     */
+    int overflowed() {
+        return overflow.size();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return (long) depth * width * cellBytes() + overflow.sizeInBytes();
+    }
+}
@@ -0,0 +1,208 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-Min Sketch that several threads can update and query at once, so the
+ * executors of one worker can share a single table instead of each keeping its own.
+ *
+ * Counters live in an AtomicLongArray and are incremented without locks. The top-k
+ * is kept as a concurrent map of candidate items to their last estimate: an item
+ * joins when its estimate reaches the threshold, the lowest count of the last
+ * known top-k, and once the map holds several times k items one thread at a time
+ * prunes it back and raises the threshold. Readers copy the candidates and pick
+ * the k highest, neither side ever waits for the other.
+ */
+public class ConcurrentCountMinSketchState extends CountMinSketchState {
+
+    private static final long serialVersionUID = -7716024465542021590L;
+
+    // The candidates are pruned back to the top-k once there are this many times k of them.
+    static final int CANDIDATE_FACTOR = 4;
+
+    final AtomicLong total = new AtomicLong();
+    final ConcurrentHashMap<String, Long> candidates = new ConcurrentHashMap<String, Long>();
+    // ConcurrentHashMap.size() may lock every segment, the number of candidates is counted here instead.
+    final AtomicInteger candidateCount = new AtomicInteger();
+    final AtomicBoolean pruning = new AtomicBoolean();
+    volatile long threshold;
+    // Changes whenever a candidate is admitted, raised or pruned.
+    final AtomicLong version = new AtomicLong();
+    // Bucket indexes per updating thread.
+    transient ThreadLocal<int[]> threadBuckets;
+
+    public ConcurrentCountMinSketchState(int depth, int width, int seed, int k) {
+        super(depth, width, seed, k, CounterTable.Storage.ATOMIC);
+    }
+
+    /**
+     * A shared state with the given counters, total count and top-k, as read back
+     * by CountMinSketchStateSerializer. The table must be of ATOMIC storage.
+     */
+    ConcurrentCountMinSketchState(int depth, int width, long size, long[] hashA, CounterTable table, int k,
+                                  TopKTracker heap) {
+        super(depth, width, 0, hashA, table, k, new TopKTracker(k));
+        if (table.storage() != CounterTable.Storage.ATOMIC) {
+            throw new IllegalArgumentException("A shared sketch needs ATOMIC counters, not " + table.storage());
+        }
+        total.set(size);
+        for (TopTweet tweet : heap.toArray()) {
+            candidates.put(tweet.getText(), tweet.getCount());
+            candidateCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Conservative update reads the counters before raising them, concurrent adds of
+     * the same item would overwrite each other's increments.
+     */
+    @Override
+    public void setConservativeUpdate(boolean conservativeUpdate) {
+        if (conservativeUpdate) {
+            throw new UnsupportedOperationException("Conservative update is not supported on a shared sketch");
+        }
+    }
+
+    /**
+     * Threads adding while the table is replaced would lose their increments.
+     */
+    @Override
+    public void fold() {
+        throw new UnsupportedOperationException("Folding is not supported on a shared sketch");
+    }
+
+    @Override
+    int[] bucketsOf(String item) {
+        if (threadBuckets == null) {
+            // Racing threads may each install one, the losers' arrays are simply dropped.
+            threadBuckets = new ThreadLocal<int[]>();
+        }
+        int[] buckets = threadBuckets.get();
+        if (buckets == null) {
+            buckets = new int[depth];
+            threadBuckets.set(buckets);
+        }
+        return Filter.getHashBuckets(item, depth, width, buckets);
+    }
+
+    @Override
+    public void add(long item, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative increments not implemented");
+        }
+        for (int i = 0; i < depth; ++i) {
+            table.add(i, hash(item, i), count);
+        }
+        total.addAndGet(count);
+    }
+
+    @Override
+    public void add(String item, long count) {
+        if (item == null || item.trim().length() == 0) {
+            return;
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative increments not implemented");
+        }
+        offer(item, addAndEstimate(item, count));
+    }
+
+    @Override
+    public long addAndEstimate(String item, long count) {
+        long res = table.addAndMin(bucketsOf(item), count);
+        total.addAndGet(count);
+        return res;
+    }
+
+    @Override
+    public long size() {
+        return total.get();
+    }
+
+    /**
+     * Records the estimate of a candidate or admits the item if it reaches the threshold.
+     * Estimates only grow, so a lower value never replaces a higher one written by
+     * another thread in between.
+     */
+    void offer(String item, long count) {
+        Long current = candidates.get(item);
+        while (true) {
+            if (current == null) {
+                if (count < threshold) {
+                    return;
+                }
+                current = candidates.putIfAbsent(item, count);
+                if (current == null) {
+                    version.incrementAndGet();
+                    if (candidateCount.incrementAndGet() > k * CANDIDATE_FACTOR) {
+                        prune();
+                    }
+                    return;
+                }
+            } else if (current >= count) {
+                return;
+            } else if (candidates.replace(item, current, count)) {
+                version.incrementAndGet();
+                return;
+            } else {
+                current = candidates.get(item);
+            }
+        }
+    }
+
+    /**
+     * Drops the candidates below the k-th highest estimate, which becomes the new threshold.
+     * Only one thread prunes at a time, the others carry on adding meanwhile.
+     */
+    void prune() {
+        if (!pruning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            List<Long> counts = new ArrayList<Long>(candidates.values());
+            if (counts.size() <= k) {
+                return;
+            }
+            Collections.sort(counts);
+            long kth = counts.get(counts.size() - k);
+            threshold = kth;
+            for (Map.Entry<String, Long> e : candidates.entrySet()) {
+                // Removes the entry only if no other thread raised its count in between.
+                if (e.getValue() < kth && candidates.remove(e.getKey(), e.getValue())) {
+                    candidateCount.decrementAndGet();
+                    version.incrementAndGet();
+                }
+            }
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    @Override
+    public long topKVersion() {
+        return version.get();
+    }
+
+    @Override
+    public TopTweet[] getTopKItems() {
+        List<TopTweet> all = new ArrayList<TopTweet>(k * CANDIDATE_FACTOR);
+        for (Map.Entry<String, Long> e : candidates.entrySet()) {
+            all.add(new TopTweet(e.getKey(), e.getValue()));
+        }
+        TopTweet[] top = all.toArray(new TopTweet[all.size()]);
+        if (top.length <= k) {
+            return top;
+        }
+        // TopTweet's own ordering is inconsistent for equal counts, which sorting may reject.
+        Arrays.sort(top, TopKSnapshot.BY_DECREASING_COUNT);
+        return Arrays.copyOf(top, k);
+    }
+}
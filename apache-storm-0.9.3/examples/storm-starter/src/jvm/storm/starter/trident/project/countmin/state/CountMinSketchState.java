@@ -17,10 +17,14 @@ package storm.starter.trident.project.countmin.state;
 import storm.trident.state.State;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.PriorityQueue;
+import java.util.HashSet;
 import java.util.Queue;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 //import com.clearspring.analytics.stream.membership.Filter;
 //import Filter;
@@ -40,25 +44,39 @@ public class CountMinSketchState implements State, Serializable {
 
     int depth;
     int width;
-    long[][] table;
+    CounterTable table;
     long[] hashA;
     long size;
     double eps;
     double confidence;
     int k = 3;
-    Queue<TopTweet> heap = new PriorityQueue<TopTweet>();
+    TopKTracker heap = new TopKTracker(k);
+    // Only raise the counters that sit at the current minimum of an item.
+    boolean conservativeUpdate;
+    // Bytes the counters may take before the width is folded in half, 0 if unbounded.
+    long memoryBudget;
+    // Bucket indexes of the item being added or estimated, reused across calls.
+    transient int[] buckets;
+    // File the state is written to on every commit, if snapshots are enabled.
+    transient SnapshotFile snapshot;
+    // Sorted top-k of the last query, served again until the top-k changes.
+    transient volatile TopKSnapshot topKSnapshot;
 
     CountMinSketchState() {
     }
 
     public CountMinSketchState(int depth, int width, int seed, int k) {
+        this(depth, width, seed, k, CounterTable.Storage.HEAP);
+    }
+
+    public CountMinSketchState(int depth, int width, int seed, int k, CounterTable.Storage storage) {
         this.depth = depth;
         this.width = width;
         this.eps = 2.0 / width;
         this.confidence = 1 - 1 / Math.pow(2, depth);
-        initTablesWith(depth, width, seed);
+        initTablesWith(depth, width, seed, storage);
         this.k = k;
-        heap = new PriorityQueue<TopTweet>(k);
+        heap = new TopKTracker(k);
     }
 
     public CountMinSketchState(double epsOfTotalCount, double confidence, int seed) {
@@ -66,12 +84,19 @@ public class CountMinSketchState implements State, Serializable {
         // 1/2^depth <= 1-confidence ; depth >= -log2 (1-confidence)
         this.eps = epsOfTotalCount;
         this.confidence = confidence;
-        this.width = (int) Math.ceil(2 / epsOfTotalCount);
-        this.depth = (int) Math.ceil(-Math.log(1 - confidence) / Math.log(2));
-        initTablesWith(depth, width, seed);
+        this.width = widthFor(epsOfTotalCount);
+        this.depth = depthFor(confidence);
+        initTablesWith(depth, width, seed, CounterTable.Storage.HEAP);
     }
 
     public CountMinSketchState(int depth, int width, int size, long[] hashA, long[][] table, int k, Queue<TopTweet> heap) {
+        this(depth, width, size, hashA, CounterTable.fromArray(table), k, new TopKTracker(k));
+        for (TopTweet tweet : heap) {
+            this.heap.offer(tweet.getText(), tweet.getCount());
+        }
+    }
+
+    public CountMinSketchState(int depth, int width, long size, long[] hashA, CounterTable table, int k, TopKTracker heap) {
         this.depth = depth;
         this.width = width;
         this.eps = 2.0 / width;
@@ -84,6 +109,10 @@ public class CountMinSketchState implements State, Serializable {
     }
 
     public CountMinSketchState(int depth, int width, int size, long[] hashA, long[][] table) {
+        this(depth, width, size, hashA, CounterTable.fromArray(table));
+    }
+
+    public CountMinSketchState(int depth, int width, long size, long[] hashA, CounterTable table) {
         this.depth = depth;
         this.width = width;
         this.eps = 2.0 / width;
@@ -93,8 +122,22 @@ public class CountMinSketchState implements State, Serializable {
         this.size = size;
     }
 
-    private void initTablesWith(int depth, int width, int seed) {
-        this.table = new long[depth][width];
+    /**
+     * Width at which estimates exceed the true count by at most eps times the total count.
+     */
+    public static int widthFor(double eps) {
+        return (int) Math.ceil(2 / eps);
+    }
+
+    /**
+     * Depth at which the error bound holds with the given probability.
+     */
+    public static int depthFor(double confidence) {
+        return (int) Math.ceil(-Math.log(1 - confidence) / Math.log(2));
+    }
+
+    private void initTablesWith(int depth, int width, int seed, CounterTable.Storage storage) {
+        this.table = CounterTable.allocate(storage, depth, width);
         this.hashA = new long[depth];
         Random r = new Random(seed);
         // We're using a linear hash functions
@@ -116,6 +159,66 @@ public class CountMinSketchState implements State, Serializable {
         return confidence;
     }
 
+    public boolean isConservativeUpdate() {
+        return conservativeUpdate;
+    }
+
+    /**
+     * With conservative update an add raises each counter of the item only as far as
+     * the item's new estimate. Counters that collided with heavier items keep their
+     * value instead of being inflated further, which gives tighter estimates for
+     * the same width. Only applies to String items.
+     */
+    public void setConservativeUpdate(boolean conservativeUpdate) {
+        this.conservativeUpdate = conservativeUpdate;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Caps the bytes of the counters. Once a commit finds the table above the cap,
+     * the width is folded in half until it fits, trading accuracy for memory
+     * instead of failing when the counters outgrow their space. Only states of
+     * even width can fold, a budget of 0 removes the cap.
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Bytes used by the counters of the state.
+     */
+    public long sizeInBytes() {
+        return table.sizeInBytes();
+    }
+
+    /**
+     * Halves the width by summing each pair of columns j and j + width / 2. An item's
+     * buckets are its hashes modulo the width, so they fold onto the buckets the
+     * item has at half the width and the state counts exactly as if it had been
+     * built with half the width from the start. The error bound doubles.
+     */
+    public void fold() {
+        if (snapshot != null) {
+            throw new IllegalStateException("Cannot fold a state with a snapshot");
+        }
+        table = table.fold();
+        width /= 2;
+        eps = 2.0 / width;
+        // Estimates only grow, the tracked items are re-estimated against the folded table.
+        for (String item : heap.items()) {
+            heap.offer(item, estimateCount(item));
+        }
+    }
+
+    void foldToBudget() {
+        while (memoryBudget > 0 && sizeInBytes() > memoryBudget && width % 2 == 0) {
+            fold();
+        }
+    }
+
     int hash(long item, int i) {
         long hash = hashA[i] * item;
         // A super fast way of computing x mod 2^p-1
@@ -137,7 +240,7 @@ public class CountMinSketchState implements State, Serializable {
             throw new IllegalArgumentException("Negative increments not implemented");
         }
         for (int i = 0; i < depth; ++i) {
-            table[i][hash(item, i)] += count;
+            table.add(i, hash(item, i), count);
         }
         size += count;
     }
@@ -153,26 +256,39 @@ public class CountMinSketchState implements State, Serializable {
             // parameter to constructor.
             throw new IllegalArgumentException("Negative increments not implemented");
         }
-        int[] buckets = Filter.getHashBuckets(item, depth, width);
-        for (int i = 0; i < depth; ++i) {
-            table[i][buckets[i]] += count;
+        long newCount = addAndEstimate(item, count);
+
+        // Updates the count of the item if it is in the top-k already,
+        // otherwise it replaces the lowest item if its new count is higher.
+        heap.offer(item, newCount);
+    }
+
+    /**
+     * Adds count to the item and returns its new estimate, hashing the item once
+     * and taking the minimum while the counters are incremented.
+     */
+    public long addAndEstimate(String item, long count) {
+        int[] buckets = bucketsOf(item);
+        long res;
+        if (conservativeUpdate) {
+            res = table.minOf(buckets) + count;
+            for (int i = 0; i < depth; ++i) {
+                if (table.get(i, buckets[i]) < res) {
+                    table.set(i, buckets[i], res);
+                }
+            }
+        } else {
+            res = table.addAndMin(buckets, count);
         }
         size += count;
+        return res;
+    }
 
-        // Adding element to priority queue with updated priority.
-        // Fetching the frequency from the count-min sketch for the corresponding item.
-        long newCount = estimateCount(item);
-        TopTweet tweet = new TopTweet(item, newCount);
-        // If the heap contains the tweet already then remove it from the heap first.
-        if (heap.contains(tweet)) {
-            heap.remove(tweet);
-        }
-        // Add the new tweet to the priority queue.
-        heap.add(tweet);
-        // Remove an element from the head of the queue if the queue length is greater than k.
-        if (heap.size() > k) {
-            heap.poll();
+    int[] bucketsOf(String item) {
+        if (buckets == null || buckets.length != depth) {
+            buckets = new int[depth];
         }
+        return Filter.getHashBuckets(item, depth, width, buckets);
     }
 
     public long size() {
@@ -187,19 +303,14 @@ public class CountMinSketchState implements State, Serializable {
     public long estimateCount(long item) {
         long res = Long.MAX_VALUE;
         for (int i = 0; i < depth; ++i) {
-            res = Math.min(res, table[i][hash(item, i)]);
+            res = Math.min(res, table.get(i, hash(item, i)));
         }
         return res;
     }
 
 
     public long estimateCount(String item) {
-        long res = Long.MAX_VALUE;
-        int[] buckets = Filter.getHashBuckets(item, depth, width);
-        for (int i = 0; i < depth; ++i) {
-            res = Math.min(res, table[i][buckets[i]]);
-        }
-        return res;
+        return table.minOf(bucketsOf(item));
     }
 
     /**
@@ -208,12 +319,37 @@ public class CountMinSketchState implements State, Serializable {
      * @return List of TopTweet
      */
     public TopTweet[] getTopKItems() {
-        // Return all the tweets from the queue.
-        return heap.toArray(new TopTweet[0]);
+        // Return all the tweets from the top-k.
+        return heap.toArray();
+    }
+
+    /**
+     * Returns a number that changes whenever the top-k items or their counts do.
+     */
+    public long topKVersion() {
+        return heap.version();
+    }
+
+    /**
+     * Returns the top-k sorted by decreasing count. The snapshot is only rebuilt
+     * when the top-k has changed since the last call, so frequent queries between
+     * updates get the same instance.
+     */
+    public TopKSnapshot getTopKSnapshot() {
+        // The version is read first, a change while copying makes the next call rebuild.
+        long version = topKVersion();
+        TopKSnapshot cached = topKSnapshot;
+        if (cached == null || cached.getVersion() != version) {
+            cached = new TopKSnapshot(version, getTopKItems());
+            topKSnapshot = cached;
+        }
+        return cached;
     }
 
     /**
-     * Merges count min sketches to produce a count min sketch for their combined streams
+     * Merges count min sketches to produce a count min sketch for their combined streams.
+     * The top-k of the result is rebuilt from the union of the estimators' top-k items,
+     * each re-estimated against the merged table.
      *
      * @param estimators
      * @return merged estimator or null if no estimators were provided
@@ -226,12 +362,12 @@ public class CountMinSketchState implements State, Serializable {
             int width = estimators[0].width;
             long[] hashA = Arrays.copyOf(estimators[0].hashA, estimators[0].hashA.length);
 
-            long[][] table = new long[depth][width];
-            Queue<TopTweet> heap = new PriorityQueue<TopTweet>(3);
-            int k = 3;
-            int size = 0;
+            CounterTable[] tables = new CounterTable[estimators.length];
+            int k = 0;
+            long size = 0;
 
-            for (CountMinSketchState estimator : estimators) {
+            for (int i = 0; i < estimators.length; i++) {
+                CountMinSketchState estimator = estimators[i];
                 if (estimator.depth != depth) {
                     throw new CMSMergeException("Cannot merge estimators of different depth");
                 }
@@ -241,111 +377,119 @@ public class CountMinSketchState implements State, Serializable {
                 if (!Arrays.equals(estimator.hashA, hashA)) {
                     throw new CMSMergeException("Cannot merge estimators of different seed");
                 }
+                tables[i] = estimator.table;
+                k = Math.max(k, estimator.k);
+                size += estimator.size();
+            }
 
-                for (int i = 0; i < table.length; i++) {
-                    for (int j = 0; j < table[i].length; j++) {
-                        table[i][j] += estimator.table[i][j];
-                    }
-                }
+            CounterTable table = estimators[0].table.emptyCopy();
+            if (estimators.length == 1) {
+                table.addAll(tables[0]);
+            } else {
+                MERGE_POOL.invoke(new MergeRows(table, tables, 0, depth));
+            }
 
-                size += estimator.size;
-                k = estimator.k;
-
-                // Merges the priority queue.
-                // If the tweets are same then the frequencies get added other wise the new tweets are added as it is.
-                TopTweet[] tweets = (TopTweet[]) estimator.heap.toArray();
-                for (TopTweet tweet : tweets) {
-                    if (heap.contains(tweet)) {
-                        TopTweet[] curTweets = (TopTweet[]) heap.toArray();
-                        for (TopTweet curTweet : curTweets) {
-                            if (curTweet.equals(tweet)) {
-                                long totalCount = tweet.getCount() + curTweet.getCount();
-                                tweet.setCount(totalCount);
-                                break;
-                            }
-                        }
-                        heap.remove(tweet);
-                        heap.add(tweet);
-                    } else {
-                        heap.add(tweet);
-                    }
-                }
-                // Remove tweets from the head of the queue till the heap size is equal to k.
-                while (heap.size() > k) {
-                    heap.poll();
+            merged = new CountMinSketchState(depth, width, size, hashA, table, k, new TopKTracker(k));
+            // Keeps the update mode and memory budget the estimators were held to on commit.
+            merged.conservativeUpdate = estimators[0].conservativeUpdate;
+            merged.memoryBudget = estimators[0].memoryBudget;
+
+            // Summing the per-estimator counts of an item would miss what it gained in
+            // the estimators where it was not in the top-k, so every candidate is
+            // estimated again from the merged table.
+            Set<String> candidates = new HashSet<String>();
+            for (CountMinSketchState estimator : estimators) {
+                for (TopTweet tweet : estimator.getTopKItems()) {
+                    candidates.add(tweet.getText());
                 }
             }
-
-            merged = new CountMinSketchState(depth, width, size, hashA, table);
+            for (String item : candidates) {
+                merged.heap.offer(item, merged.estimateCount(item));
+            }
         }
 
         return merged;
     }
 
-    public static byte[] serialize(CountMinSketchState sketch) {
+    // Workers are only started when a merge needs them.
+    private static final ForkJoinPool MERGE_POOL = new ForkJoinPool();
 
-        ByteArrayOutputStream bos = null;
-        ObjectOutputStream out = null;
-        try {
-            bos = new ByteArrayOutputStream();
-            out = new ObjectOutputStream(bos);
+    /**
+     * Sums the tables into the target over a range of rows, splitting the range
+     * in halves until a task covers few enough cells. Rows are disjoint, so the
+     * tasks never write to the same counters.
+     */
+    @SuppressWarnings("serial")
+    static class MergeRows extends RecursiveAction {
 
-            out.writeObject(sketch);
-            return bos.toByteArray();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (bos != null) {
-                try {
-                    bos.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+        // Cells summed by a single task before it is split.
+        static final int THRESHOLD = 1 << 16;
+
+        final CounterTable target;
+        final CounterTable[] tables;
+        final int fromRow;
+        final int toRow;
+
+        MergeRows(CounterTable target, CounterTable[] tables, int fromRow, int toRow) {
+            this.target = target;
+            this.tables = tables;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = toRow - fromRow;
+            if (rows == 1 || (long) rows * target.width() * tables.length <= THRESHOLD) {
+                for (CounterTable table : tables) {
+                    target.addRows(table, fromRow, toRow);
                 }
+            } else {
+                int mid = fromRow + rows / 2;
+                invokeAll(new MergeRows(target, tables, fromRow, mid), new MergeRows(target, tables, mid, toRow));
             }
         }
-        return null;
     }
 
-    public static CountMinSketchState deserialize(byte[] data) {
+    private static final CountMinSketchStateSerializer serializer_ = new CountMinSketchStateSerializer();
 
-        ByteArrayInputStream bis = null;
-        ObjectInputStream ois = null;
+    /**
+     * Compact binary serializer, see CountMinSketchStateSerializer for the format.
+     */
+    public static ICompactSerializer<CountMinSketchState> serializer() {
+        return serializer_;
+    }
 
+    public static byte[] serialize(CountMinSketchState sketch) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
         try {
-            bis = new ByteArrayInputStream(data);
-            ois = new ObjectInputStream(bis);
-            CountMinSketchState sketch = (CountMinSketchState) (ois.readObject());
-            return sketch;
+            serializer_.serialize(sketch, out);
+            out.flush();
+            return bos.toByteArray();
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (ClassNotFoundException e) {
+        }
+        return null;
+    }
+
+    public static CountMinSketchState deserialize(byte[] data) {
+        try {
+            return serializer_.deserialize(ByteBuffer.wrap(data));
+        } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            if (bis != null) {
-                try {
-                    bis.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (ois != null) {
-                try {
-                    ois.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
         }
         return null;
     }
 
+    /**
+     * Reads a sketch written by serializer() from the buffer's position without
+     * copying it first, e.g. from a memory-mapped snapshot.
+     */
+    public static CountMinSketchState deserialize(ByteBuffer buffer) throws IOException {
+        return serializer_.deserialize(buffer);
+    }
+
     @Override
     public void beginCommit(Long txid) {
         return;
@@ -353,7 +497,14 @@ public class CountMinSketchState implements State, Serializable {
 
     @Override
     public void commit(Long txid) {
-        return;
+        foldToBudget();
+        if (snapshot != null) {
+            try {
+                snapshot.commit(this, txid);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     @SuppressWarnings("serial")
@@ -2,8 +2,13 @@ package storm.starter.trident.project.countmin.state;
 
 import storm.trident.state.StateFactory;
 import storm.trident.state.State;
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
 import backtype.storm.task.IMetricsContext;
+import com.google.common.collect.MapMaker;
 
 /**
  *@author: Preetham MS (pmahish@ncsu.edu)
@@ -15,16 +20,156 @@ public class CountMinSketchStateFactory implements StateFactory {
 	protected int width;
 	protected int seed;
     protected int k;
+    protected CounterTable.Storage storage;
+    protected boolean conservativeUpdate;
+    protected int windowSlots;
+    protected long slotLengthMs;
+    protected String snapshotDirectory;
+    // Identifies the shared state of this factory across its deserialized copies, null if not shared.
+    protected String sharedId;
+    // Bytes the counters of a partition may take, 0 if unbounded.
+    protected long memoryBudget;
+
+    // Shared states of the worker by factory. Trident never tells a state its partition is
+    // done, so the states are only weakly held: once the executors of a killed topology
+    // are gone their state is collected and its entry dropped.
+    private static final ConcurrentMap<String, ConcurrentCountMinSketchState> SHARED_STATES =
+            new MapMaker().weakValues().makeMap();
 
 	public CountMinSketchStateFactory( int depth, int width, int seed, int k) {
-		this.depth=depth;
-		this.width = width;
-		this.seed = seed;
-        this.k = k;
+		this(depth, width, seed, k, CounterTable.Storage.HEAP);
 	}
 
+    public CountMinSketchStateFactory(int depth, int width, int seed, int k, CounterTable.Storage storage) {
+        this.depth = depth;
+        this.width = width;
+        this.seed = seed;
+        this.k = k;
+        this.storage = storage;
+    }
+
+    /**
+     * Sizes the states from the error they may make instead of their dimensions: an
+     * estimate exceeds the true count by at most eps times the total count, with
+     * probability confidence. The width is rounded up to a power of two so that a
+     * memory budget can fold it in half repeatedly, see setMemoryBudget.
+     */
+    public CountMinSketchStateFactory(double eps, double confidence, int seed, int k) {
+        this(CountMinSketchState.depthFor(confidence), powerOfTwoAtLeast(CountMinSketchState.widthFor(eps)), seed, k);
+    }
+
+    private static int powerOfTwoAtLeast(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Caps the bytes of the counters of each partition. A state that would not fit
+     * is made with its width halved as often as needed, and a state whose counters
+     * grow past the cap, e.g. through overflowing compact counters, folds its width
+     * in half on commit, see CountMinSketchState.setMemoryBudget. Either doubles
+     * the error bound. States with a snapshot or shared by the worker keep the
+     * width they are made with.
+     */
+    public CountMinSketchStateFactory setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * Width of the states made by this factory, the largest halving of the configured
+     * width whose counters fit the memory budget.
+     */
+    int fittedWidth() {
+        // A sliding window keeps a table per interval and one being drained besides the sum.
+        long tables = windowSlots > 0 ? windowSlots + 2 : 1;
+        int fitted = width;
+        while (memoryBudget > 0 && fitted % 2 == 0
+                && tables * depth * fitted * storage.cellBytes() > memoryBudget) {
+            fitted /= 2;
+        }
+        return fitted;
+    }
+
+    /**
+     * Makes the states raise only the counters at an item's minimum, see
+     * CountMinSketchState.setConservativeUpdate.
+     */
+    public CountMinSketchStateFactory setConservativeUpdate(boolean conservativeUpdate) {
+        this.conservativeUpdate = conservativeUpdate;
+        return this;
+    }
+
+    /**
+     * Makes the states count only the last numSlots intervals of slotLengthMs each,
+     * see SlidingWindowCountMinSketchState.
+     */
+    public CountMinSketchStateFactory setSlidingWindow(int numSlots, long slotLengthMs) {
+        this.windowSlots = numSlots;
+        this.slotLengthMs = slotLengthMs;
+        return this;
+    }
+
+    /**
+     * Makes every partition keep its state in a memory-mapped snapshot file in the
+     * directory, written on each commit and loaded again when the state is made.
+     * The directory must be local to the worker and not shared by other topologies.
+     */
+    public CountMinSketchStateFactory setSnapshotDirectory(String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+        return this;
+    }
+
+    /**
+     * Makes all the partitions in one worker share a single ConcurrentCountMinSketchState
+     * instead of each building its own. Every partition of a worker then answers
+     * queries with the counts of the whole worker.
+     */
+    public CountMinSketchStateFactory setShared(boolean shared) {
+        this.sharedId = shared ? UUID.randomUUID().toString() : null;
+        return this;
+    }
+
    @Override
    public State makeState(Map conf, IMetricsContext metrics, int partitionIndex, int numPartitions) {
-      return new CountMinSketchState(depth,width,seed, k);
-   } 
+      if (sharedId != null) {
+          return sharedState();
+      }
+      int width = fittedWidth();
+      CountMinSketchState state;
+      if (windowSlots > 0) {
+          state = new SlidingWindowCountMinSketchState(depth, width, seed, k, storage, windowSlots, slotLengthMs);
+      } else {
+          state = new CountMinSketchState(depth, width, seed, k, storage);
+      }
+      state.setConservativeUpdate(conservativeUpdate);
+      if (snapshotDirectory != null) {
+          if (windowSlots > 0) {
+              throw new IllegalStateException("Snapshots of a sliding window are not supported");
+          }
+          File file = new File(snapshotDirectory, "countmin-" + partitionIndex + ".snapshot");
+          try {
+              new SnapshotFile(file, depth, width).attach(state);
+          } catch (IOException e) {
+              throw new RuntimeException(e);
+          }
+      } else {
+          state.setMemoryBudget(memoryBudget);
+      }
+      return state;
+   }
+
+    private ConcurrentCountMinSketchState sharedState() {
+        if (windowSlots > 0 || snapshotDirectory != null || conservativeUpdate) {
+            throw new IllegalStateException("A shared state supports neither sliding windows, snapshots nor conservative update");
+        }
+        ConcurrentCountMinSketchState state = SHARED_STATES.get(sharedId);
+        if (state == null) {
+            ConcurrentCountMinSketchState created = new ConcurrentCountMinSketchState(depth, fittedWidth(), seed, k);
+            state = SHARED_STATES.putIfAbsent(sharedId, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        return state;
+    }
 }
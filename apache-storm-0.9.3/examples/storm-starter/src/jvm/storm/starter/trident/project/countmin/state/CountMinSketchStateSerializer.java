@@ -0,0 +1,348 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Compact binary form of a CountMinSketchState, without the class metadata of
+ * java serialization.
+ *
+ * Layout, all multi-byte fixed width values big-endian:
+ * <pre>
+ * int     MAGIC
+ * byte    VERSION
+ * byte    flags (FLAG_CONSERVATIVE, FLAG_SHARED)
+ * byte    storage ordinal
+ * varint  depth, width, k
+ * varlong size
+ * double  eps, confidence
+ * varlong hashA[depth]
+ * depth x row:   byte ROW_DENSE or ROW_SPARSE, varint length in bytes, then
+ *                dense:  width x zigzag varlong counter
+ *                sparse: varint non-zero cells, then per cell
+ *                        varint column gap from the previous cell, zigzag varlong counter
+ * varint  top-k entries, then per entry varint UTF-8 length, UTF-8 bytes, varlong count
+ * </pre>
+ * Each row takes whichever of the two encodings is smaller, so the rows of a
+ * wide sketch that saw few items cost a few bytes per used cell. Counters are
+ * zigzag encoded so a negative counter takes as few bytes as a positive one.
+ *
+ * A ConcurrentCountMinSketchState is written like any state with FLAG_SHARED
+ * set, and read back as one. Other subclasses cannot be serialized.
+ */
+class CountMinSketchStateSerializer implements ICompactSerializer<CountMinSketchState> {
+
+    static final int MAGIC = 0x434d5353;
+    // Version 2 hashes words with MurmurHash3, the counters of version 1 sit in other buckets.
+    static final byte VERSION = 2;
+
+    static final byte FLAG_CONSERVATIVE = 1;
+    static final byte FLAG_SHARED = 2;
+
+    static final byte ROW_DENSE = 0;
+    static final byte ROW_SPARSE = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Override
+    public void serialize(CountMinSketchState state, DataOutputStream dos) throws IOException {
+        boolean shared = state.getClass() == ConcurrentCountMinSketchState.class;
+        if (state.getClass() != CountMinSketchState.class && !shared) {
+            // Subclasses keep more than the table, writing them like this would silently drop it.
+            throw new IllegalArgumentException("Cannot serialize " + state.getClass().getName());
+        }
+        CounterTable table = state.table;
+        int depth = state.depth;
+        int width = state.width;
+
+        dos.writeInt(MAGIC);
+        dos.writeByte(VERSION);
+        dos.writeByte((state.conservativeUpdate ? FLAG_CONSERVATIVE : 0) | (shared ? FLAG_SHARED : 0));
+        dos.writeByte(table.storage().ordinal());
+        writeVarLong(dos, depth);
+        writeVarLong(dos, width);
+        writeVarLong(dos, state.k);
+        writeVarLong(dos, state.size());
+        dos.writeDouble(state.eps);
+        dos.writeDouble(state.confidence);
+        for (int i = 0; i < depth; i++) {
+            writeVarLong(dos, state.hashA[i]);
+        }
+
+        byte[] row = new byte[64];
+        for (int i = 0; i < depth; i++) {
+            // Encode the row dense while working out what the sparse encoding would take,
+            // most rows of a sketch in use are dense so the second pass is rare.
+            int length = 0;
+            int nonZero = 0;
+            long sparseBytes = 0;
+            int last = -1;
+            for (int j = 0; j < width; j++) {
+                if (row.length - length < 10) {
+                    row = Arrays.copyOf(row, Math.max(row.length * 2, 64));
+                }
+                long value = table.get(i, j);
+                int start = length;
+                length = putVarLong(row, length, zigzag(value));
+                if (value != 0) {
+                    sparseBytes += varLongSize(j - last - 1) + length - start;
+                    last = j;
+                    nonZero++;
+                }
+            }
+            sparseBytes += varLongSize(nonZero);
+
+            if (sparseBytes < length) {
+                dos.writeByte(ROW_SPARSE);
+                length = putVarLong(row, 0, nonZero);
+                last = -1;
+                for (int j = 0; j < width; j++) {
+                    long value = table.get(i, j);
+                    if (value != 0) {
+                        length = putVarLong(row, length, j - last - 1);
+                        length = putVarLong(row, length, zigzag(value));
+                        last = j;
+                    }
+                }
+            } else {
+                dos.writeByte(ROW_DENSE);
+            }
+            writeVarLong(dos, length);
+            dos.write(row, 0, length);
+        }
+
+        TopTweet[] top = state.getTopKItems();
+        writeVarLong(dos, top.length);
+        for (TopTweet tweet : top) {
+            byte[] text = tweet.getText().getBytes(UTF8);
+            writeVarLong(dos, text.length);
+            dos.write(text);
+            writeVarLong(dos, tweet.getCount());
+        }
+    }
+
+    @Override
+    public CountMinSketchState deserialize(DataInputStream dis) throws IOException {
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Not a serialized count-min sketch");
+        }
+        byte version = dis.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported count-min sketch version " + version);
+        }
+        byte flags = dis.readByte();
+        CounterTable.Storage storage = storageOf(dis.readByte());
+        int depth = (int) readVarLong(dis);
+        int width = (int) readVarLong(dis);
+        int k = (int) readVarLong(dis);
+        long size = readVarLong(dis);
+        double eps = dis.readDouble();
+        double confidence = dis.readDouble();
+        long[] hashA = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            hashA[i] = readVarLong(dis);
+        }
+
+        CounterTable table = CounterTable.allocate(storage, depth, width);
+        byte[] row = new byte[64];
+        for (int i = 0; i < depth; i++) {
+            byte encoding = dis.readByte();
+            int length = (int) readVarLong(dis);
+            if (row.length < length) {
+                row = new byte[length];
+            }
+            dis.readFully(row, 0, length);
+            ByteBuffer in = ByteBuffer.wrap(row, 0, length);
+            readRow(in, encoding, table, i);
+            if (in.hasRemaining()) {
+                throw new IOException("Corrupt row " + i);
+            }
+        }
+
+        TopKTracker heap = new TopKTracker(k);
+        int entries = (int) readVarLong(dis);
+        byte[] text = new byte[64];
+        for (int n = 0; n < entries; n++) {
+            int length = (int) readVarLong(dis);
+            if (text.length < length) {
+                text = new byte[length];
+            }
+            dis.readFully(text, 0, length);
+            heap.offer(new String(text, 0, length, UTF8), readVarLong(dis));
+        }
+        return newState(flags, depth, width, k, size, eps, confidence, hashA, table, heap);
+    }
+
+    /**
+     * Reads a state straight from the buffer, decoding the rows in place instead of
+     * through a stream and an intermediate copy. The buffer's position is moved past
+     * the state. Works with heap, direct and memory-mapped buffers of either byte order.
+     */
+    public CountMinSketchState deserialize(ByteBuffer buffer) throws IOException {
+        // A view in the byte order of the format, the caller's buffer keeps its own order.
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a serialized count-min sketch");
+        }
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported count-min sketch version " + version);
+        }
+        byte flags = in.get();
+        CounterTable.Storage storage = storageOf(in.get());
+        int depth = (int) readVarLong(in);
+        int width = (int) readVarLong(in);
+        int k = (int) readVarLong(in);
+        long size = readVarLong(in);
+        double eps = in.getDouble();
+        double confidence = in.getDouble();
+        long[] hashA = new long[depth];
+        for (int i = 0; i < depth; i++) {
+            hashA[i] = readVarLong(in);
+        }
+
+        CounterTable table = CounterTable.allocate(storage, depth, width);
+        for (int i = 0; i < depth; i++) {
+            byte encoding = in.get();
+            int length = (int) readVarLong(in);
+            int end = in.position() + length;
+            readRow(in, encoding, table, i);
+            if (in.position() != end) {
+                throw new IOException("Corrupt row " + i);
+            }
+        }
+
+        TopKTracker heap = new TopKTracker(k);
+        int entries = (int) readVarLong(in);
+        byte[] text = new byte[64];
+        for (int n = 0; n < entries; n++) {
+            int length = (int) readVarLong(in);
+            String item;
+            if (in.hasArray()) {
+                item = new String(in.array(), in.arrayOffset() + in.position(), length, UTF8);
+                in.position(in.position() + length);
+            } else {
+                if (text.length < length) {
+                    text = new byte[length];
+                }
+                in.get(text, 0, length);
+                item = new String(text, 0, length, UTF8);
+            }
+            heap.offer(item, readVarLong(in));
+        }
+        buffer.position(in.position());
+        return newState(flags, depth, width, k, size, eps, confidence, hashA, table, heap);
+    }
+
+    private static void readRow(ByteBuffer in, byte encoding, CounterTable table, int row) throws IOException {
+        int width = table.width();
+        if (encoding == ROW_DENSE) {
+            for (int j = 0; j < width; j++) {
+                table.set(row, j, unzigzag(readVarLong(in)));
+            }
+        } else if (encoding == ROW_SPARSE) {
+            long nonZero = readVarLong(in);
+            int col = -1;
+            for (long n = 0; n < nonZero; n++) {
+                col += (int) readVarLong(in) + 1;
+                if (col >= width) {
+                    throw new IOException("Corrupt row " + row);
+                }
+                table.set(row, col, unzigzag(readVarLong(in)));
+            }
+        } else {
+            throw new IOException("Unknown encoding " + encoding + " of row " + row);
+        }
+    }
+
+    private static CountMinSketchState newState(byte flags, int depth, int width, int k, long size,
+                                                double eps, double confidence, long[] hashA,
+                                                CounterTable table, TopKTracker heap) throws IOException {
+        if ((flags & FLAG_SHARED) != 0) {
+            if (table.storage() != CounterTable.Storage.ATOMIC) {
+                throw new IOException("Shared sketch with " + table.storage() + " counters");
+            }
+            ConcurrentCountMinSketchState state =
+                    new ConcurrentCountMinSketchState(depth, width, size, hashA, table, k, heap);
+            state.eps = eps;
+            state.confidence = confidence;
+            return state;
+        }
+        CountMinSketchState state = new CountMinSketchState(depth, width, size, hashA, table, k, heap);
+        state.eps = eps;
+        state.confidence = confidence;
+        state.conservativeUpdate = (flags & FLAG_CONSERVATIVE) != 0;
+        return state;
+    }
+
+    private static CounterTable.Storage storageOf(byte ordinal) throws IOException {
+        CounterTable.Storage[] values = CounterTable.Storage.values();
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Unknown counter storage " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7fL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int putVarLong(byte[] out, int pos, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -4,22 +4,31 @@ import storm.trident.state.BaseStateUpdater;
 import storm.trident.tuple.TridentTuple;
 import storm.trident.operation.TridentCollector;
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  *@author: Preetham MS (pmahish@ncsu.edu)
  */
 
 public class CountMinSketchUpdater extends BaseStateUpdater<CountMinSketchState> {
+
+    // Occurrences of each distinct word in the current batch, reused from batch to batch.
+    private transient ItemCounts batchCounts;
+
     public void updateState(CountMinSketchState state, List<TridentTuple> tuples, TridentCollector collector) {
-        List<Long> ids = new ArrayList<Long>();
-        List<String> locations = new ArrayList<String>();
+        if (batchCounts == null) {
+            batchCounts = new ItemCounts();
+        }
+        // Collapse the batch first so that a word seen hundreds of times
+        // is hashed, counted and checked against the top-k only once.
         for(TridentTuple t: tuples) {
-            //ids.add(t.getLong(0));
-            //locations.add(t.getString(1));
-
-            state.add(t.getString(0),1);
+            String word = t.getString(0);
+            if (word != null) {
+                batchCounts.add(word, 1);
+            }
+        }
+        for (int i = 0; i < batchCounts.size(); i++) {
+            state.add(batchCounts.key(i), batchCounts.count(i));
         }
-        
+        batchCounts.clear();
     }
 }
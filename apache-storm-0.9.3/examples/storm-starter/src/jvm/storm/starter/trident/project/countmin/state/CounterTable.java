@@ -0,0 +1,247 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.Serializable;
+import java.nio.LongBuffer;
+
+/**
+ * Storage for the depth x width counters of a count-min sketch.
+ * Counters are laid out row-major in a single contiguous region so that the
+ * cells touched by one update are not spread over depth separate row objects.
+ */
+public abstract class CounterTable implements Serializable {
+
+    private static final long serialVersionUID = -3907422345711290547L;
+
+    /**
+     * Where the counters of a table live.
+     */
+    public enum Storage {
+        // One long[] on the java heap.
+        HEAP(8),
+        // A direct ByteBuffer outside of the java heap, invisible to the garbage collector.
+        OFF_HEAP(8),
+        // An AtomicLongArray on the java heap, safe to update from several threads.
+        ATOMIC(8),
+        // 16 bit counters on the java heap, the few larger values are kept aside.
+        COMPACT_16(2),
+        // 32 bit counters on the java heap, the few larger values are kept aside.
+        COMPACT_32(4);
+
+        private final int cellBytes;
+
+        Storage(int cellBytes) {
+            this.cellBytes = cellBytes;
+        }
+
+        /**
+         * Bytes taken by one counter of a table in this storage.
+         */
+        public int cellBytes() {
+            return cellBytes;
+        }
+    }
+
+    protected int depth;
+    protected int width;
+
+    protected CounterTable(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Depth and width must be positive");
+        }
+        if ((long) depth * width > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Table of " + depth + "x" + width + " counters is too large");
+        }
+        this.depth = depth;
+        this.width = width;
+    }
+
+    /**
+     * Allocates a zeroed table of the given dimensions.
+     */
+    public static CounterTable allocate(Storage storage, int depth, int width) {
+        switch (storage) {
+            case OFF_HEAP:
+                return new DirectCounterTable(depth, width);
+            case ATOMIC:
+                return new AtomicCounterTable(depth, width);
+            case COMPACT_16:
+                return new Compact16CounterTable(depth, width);
+            case COMPACT_32:
+                return new Compact32CounterTable(depth, width);
+            case HEAP:
+            default:
+                return new LongArrayCounterTable(depth, width);
+        }
+    }
+
+    /**
+     * Copies a table in the old long[depth][width] layout into a heap table.
+     */
+    public static CounterTable fromArray(long[][] rows) {
+        CounterTable table = new LongArrayCounterTable(rows.length, rows[0].length);
+        for (int i = 0; i < table.depth; i++) {
+            for (int j = 0; j < table.width; j++) {
+                table.set(i, j, rows[i][j]);
+            }
+        }
+        return table;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public abstract Storage storage();
+
+    public abstract long get(int row, int col);
+
+    public abstract void set(int row, int col, long value);
+
+    /**
+     * Adds delta to a counter.
+     *
+     * @return the new value of the counter
+     */
+    public abstract long add(int row, int col, long delta);
+
+    /**
+     * Returns the lowest of the counters at buckets[i] of each row i.
+     */
+    public long minOf(int[] buckets) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, get(i, buckets[i]));
+        }
+        return min;
+    }
+
+    /**
+     * Adds delta to the counter at buckets[i] of each row i.
+     *
+     * @return the lowest of the new values
+     */
+    public long addAndMin(int[] buckets, long delta) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, add(i, buckets[i], delta));
+        }
+        return min;
+    }
+
+    /**
+     * Adds every counter of other to this table.
+     */
+    public void addAll(CounterTable other) {
+        addRows(other, 0, depth);
+    }
+
+    /**
+     * Adds the counters of rows [fromRow, toRow) of other to this table.
+     */
+    public void addRows(CounterTable other, int fromRow, int toRow) {
+        checkSameShape(other);
+        for (int i = fromRow; i < toRow; i++) {
+            for (int j = 0; j < width; j++) {
+                add(i, j, other.get(i, j));
+            }
+        }
+    }
+
+    /**
+     * Subtracts the counters of rows [fromRow, toRow) of other from this table.
+     */
+    public void subtractRows(CounterTable other, int fromRow, int toRow) {
+        checkSameShape(other);
+        for (int i = fromRow; i < toRow; i++) {
+            for (int j = 0; j < width; j++) {
+                add(i, j, -other.get(i, j));
+            }
+        }
+    }
+
+    /**
+     * Zeroes the counters of rows [fromRow, toRow).
+     */
+    public void clearRows(int fromRow, int toRow) {
+        for (int i = fromRow; i < toRow; i++) {
+            for (int j = 0; j < width; j++) {
+                set(i, j, 0);
+            }
+        }
+    }
+
+    /**
+     * Copies the counters [fromCell, toCell) of the row-major layout into dst at the same offsets.
+     */
+    public void writeCells(LongBuffer dst, int fromCell, int toCell) {
+        for (int i = fromCell; i < toCell; i++) {
+            dst.put(i, get(i / width, i % width));
+        }
+    }
+
+    /**
+     * Replaces every counter with the row-major counters of src.
+     */
+    public void readCells(LongBuffer src) {
+        for (int i = 0, size = depth * width; i < size; i++) {
+            set(i / width, i % width, src.get(i));
+        }
+    }
+
+    /**
+     * Returns a table of half the width whose column j holds the sum of columns j
+     * and j + width / 2 of this one. Bucket indexes taken modulo the width, such as
+     * those of a count-min sketch, land in the same column of the folded table
+     * when taken modulo half the width.
+     */
+    public CounterTable fold() {
+        if (width % 2 != 0) {
+            throw new IllegalStateException("Cannot fold a table of odd width " + width);
+        }
+        int half = width / 2;
+        CounterTable folded = allocate(storage(), depth, half);
+        for (int i = 0; i < depth; i++) {
+            for (int j = 0; j < half; j++) {
+                folded.set(i, j, get(i, j) + get(i, j + half));
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Returns a zeroed table with the same dimensions and storage.
+     */
+    public CounterTable emptyCopy() {
+        return allocate(storage(), depth, width);
+    }
+
+    /**
+     * Returns the counters in the old long[depth][width] layout.
+     */
+    public long[][] toArray() {
+        long[][] rows = new long[depth][width];
+        for (int i = 0; i < depth; i++) {
+            for (int j = 0; j < width; j++) {
+                rows[i][j] = get(i, j);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Bytes used by the counters themselves.
+     */
+    public long sizeInBytes() {
+        return (long) depth * width * 8;
+    }
+
+    protected void checkSameShape(CounterTable other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot combine tables of different dimensions");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Bloom filter with a 4 bit counter per bucket instead of a bit, so that items
+ * can be removed again. The counters are packed 16 to a long.
+ *
+ * A counter that reaches 15 sticks there: it may stand for more additions than
+ * it can count, so removing an item never lowers it, which keeps every item
+ * still in the filter present at the cost of a few buckets that stay set.
+ */
+public class CountingBloomFilter extends Filter {
+
+    private static final long serialVersionUID = 2143376395120233373L;
+
+    static final int COUNTER_BITS = 4;
+    static final long MAX_COUNT = (1 << COUNTER_BITS) - 1;
+
+    final int numBuckets;
+    final long[] counters;
+    transient int[] buckets;
+
+    public CountingBloomFilter(int numBuckets, int hashCount) {
+        if (numBuckets <= 0 || hashCount <= 0) {
+            throw new IllegalArgumentException("Number of buckets and hash count must be positive");
+        }
+        this.numBuckets = numBuckets;
+        this.hashCount = hashCount;
+        this.counters = new long[(numBuckets + 15) >>> 4];
+    }
+
+    /**
+     * Returns a filter sized like BloomFilter.forExpectedItems, with four times the memory.
+     */
+    public static CountingBloomFilter forExpectedItems(long expectedItems, double falsePositiveRate) {
+        int numBuckets = BloomFilter.optimalNumBits(expectedItems, falsePositiveRate);
+        return new CountingBloomFilter(numBuckets, BloomFilter.optimalHashCount(expectedItems, numBuckets));
+    }
+
+    @Override
+    int buckets() {
+        return numBuckets;
+    }
+
+    private int[] scratch() {
+        if (buckets == null) {
+            buckets = new int[hashCount];
+        }
+        return buckets;
+    }
+
+    long count(int bucket) {
+        return (counters[bucket >>> 4] >>> ((bucket & 15) << 2)) & MAX_COUNT;
+    }
+
+    private void increment(int bucket) {
+        if (count(bucket) < MAX_COUNT) {
+            counters[bucket >>> 4] += 1L << ((bucket & 15) << 2);
+        }
+    }
+
+    private void decrement(int bucket) {
+        long count = count(bucket);
+        if (count > 0 && count < MAX_COUNT) {
+            counters[bucket >>> 4] -= 1L << ((bucket & 15) << 2);
+        }
+    }
+
+    @Override
+    public void add(String key) {
+        int[] buckets = Filter.getHashBuckets(key, hashCount, numBuckets, scratch());
+        for (int i = 0; i < hashCount; i++) {
+            increment(buckets[i]);
+        }
+    }
+
+    public void add(long key) {
+        int[] buckets = Filter.getHashBuckets(key, hashCount, numBuckets, scratch());
+        for (int i = 0; i < hashCount; i++) {
+            increment(buckets[i]);
+        }
+    }
+
+    /**
+     * Removes an item added before. Removing an item that was never added
+     * corrupts the filter, it may then miss items that are in it.
+     */
+    public void remove(String key) {
+        int[] buckets = Filter.getHashBuckets(key, hashCount, numBuckets, scratch());
+        for (int i = 0; i < hashCount; i++) {
+            decrement(buckets[i]);
+        }
+    }
+
+    public void remove(long key) {
+        int[] buckets = Filter.getHashBuckets(key, hashCount, numBuckets, scratch());
+        for (int i = 0; i < hashCount; i++) {
+            decrement(buckets[i]);
+        }
+    }
+
+    @Override
+    public boolean isPresent(String key) {
+        return allSet(Filter.getHashBuckets(key, hashCount, numBuckets, scratch()));
+    }
+
+    public boolean isPresent(long key) {
+        return allSet(Filter.getHashBuckets(key, hashCount, numBuckets, scratch()));
+    }
+
+    private boolean allSet(int[] buckets) {
+        for (int i = 0; i < hashCount; i++) {
+            if (count(buckets[i]) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the counts of the other filter to this one, saturating at the largest count.
+     *
+     * @throws IllegalArgumentException if the filters differ in size or hash count
+     */
+    public void merge(CountingBloomFilter other) {
+        if (other.numBuckets != numBuckets || other.hashCount != hashCount) {
+            throw new IllegalArgumentException("Cannot merge filters of different size or hash count");
+        }
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            long sum = Math.min(MAX_COUNT, count(bucket) + other.count(bucket));
+            int shift = (bucket & 15) << 2;
+            counters[bucket >>> 4] = (counters[bucket >>> 4] & ~(MAX_COUNT << shift)) | (sum << shift);
+        }
+    }
+
+    /**
+     * Bytes used by the counters.
+     */
+    public long sizeInBytes() {
+        return (long) counters.length * 8;
+    }
+
+    @Override
+    int emptyBuckets() {
+        int empty = 0;
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            if (count(bucket) == 0) {
+                empty++;
+            }
+        }
+        return empty;
+    }
+
+    private static final CountingBloomFilterSerializer serializer_ = new CountingBloomFilterSerializer();
+
+    public static ICompactSerializer<CountingBloomFilter> serializer() {
+        return serializer_;
+    }
+
+    /**
+     * Writes the number of buckets and hash count followed by the words of the counters.
+     */
+    static class CountingBloomFilterSerializer implements ICompactSerializer<CountingBloomFilter> {
+
+        static final int MAGIC = 0x43424c46;
+        static final byte VERSION = 1;
+
+        @Override
+        public void serialize(CountingBloomFilter filter, DataOutputStream dos) throws IOException {
+            dos.writeInt(MAGIC);
+            dos.writeByte(VERSION);
+            CountMinSketchStateSerializer.writeVarLong(dos, filter.numBuckets);
+            CountMinSketchStateSerializer.writeVarLong(dos, filter.hashCount);
+            for (long word : filter.counters) {
+                dos.writeLong(word);
+            }
+        }
+
+        @Override
+        public CountingBloomFilter deserialize(DataInputStream dis) throws IOException {
+            if (dis.readInt() != MAGIC) {
+                throw new IOException("Not a serialized counting bloom filter");
+            }
+            byte version = dis.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported counting bloom filter version " + version);
+            }
+            int numBuckets = (int) CountMinSketchStateSerializer.readVarLong(dis);
+            int hashCount = (int) CountMinSketchStateSerializer.readVarLong(dis);
+            CountingBloomFilter filter = new CountingBloomFilter(numBuckets, hashCount);
+            for (int i = 0; i < filter.counters.length; i++) {
+                filter.counters[i] = dis.readLong();
+            }
+            return filter;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Counter table backed by a direct ByteBuffer outside of the java heap.
+ * The garbage collector never scans or copies the counters, which keeps
+ * very wide sketches from adding to the pause times of the worker.
+ */
+class DirectCounterTable extends CounterTable {
+
+    private static final long serialVersionUID = -1536009128340867165L;
+
+    // Counters summed at a time by addRows.
+    private static final int CHUNK = 1024;
+
+    // Buffers are not serializable, the counters are written out by writeObject instead.
+    transient LongBuffer cells;
+
+    DirectCounterTable(int depth, int width) {
+        super(depth, width);
+        this.cells = allocateCells(depth * width);
+    }
+
+    private static LongBuffer allocateCells(int size) {
+        return ByteBuffer.allocateDirect(size * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    @Override
+    public Storage storage() {
+        return Storage.OFF_HEAP;
+    }
+
+    @Override
+    public long get(int row, int col) {
+        return cells.get(row * width + col);
+    }
+
+    @Override
+    public void set(int row, int col, long value) {
+        cells.put(row * width + col, value);
+    }
+
+    @Override
+    public long add(int row, int col, long delta) {
+        int index = row * width + col;
+        long value = cells.get(index) + delta;
+        cells.put(index, value);
+        return value;
+    }
+
+    @Override
+    public void addRows(CounterTable other, int fromRow, int toRow) {
+        if (!(other instanceof DirectCounterTable)) {
+            super.addRows(other, fromRow, toRow);
+            return;
+        }
+        checkSameShape(other);
+        // Per-element get and put on a buffer do not vectorize, the rows are copied
+        // through two small arrays where the add is a plain loop.
+        LongBuffer src = ((DirectCounterTable) other).cells.duplicate();
+        LongBuffer dst = cells.duplicate();
+        long[] sums = new long[CHUNK];
+        long[] addends = new long[CHUNK];
+        for (int i = fromRow * width, end = toRow * width; i < end; i += CHUNK) {
+            int n = Math.min(CHUNK, end - i);
+            dst.position(i);
+            dst.get(sums, 0, n);
+            src.position(i);
+            src.get(addends, 0, n);
+            for (int j = 0; j < n; j++) {
+                sums[j] += addends[j];
+            }
+            dst.position(i);
+            dst.put(sums, 0, n);
+        }
+    }
+
+    @Override
+    public void writeCells(LongBuffer dst, int fromCell, int toCell) {
+        LongBuffer source = cells.duplicate();
+        source.position(fromCell).limit(toCell);
+        LongBuffer target = dst.duplicate();
+        target.position(fromCell);
+        target.put(source);
+    }
+
+    @Override
+    public void readCells(LongBuffer src) {
+        LongBuffer source = src.duplicate();
+        source.position(0).limit(depth * width);
+        LongBuffer target = cells.duplicate();
+        target.position(0);
+        target.put(source);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int i = 0, size = depth * width; i < size; i++) {
+            out.writeLong(cells.get(i));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        cells = allocateCells(depth * width);
+        for (int i = 0, size = depth * width; i < size; i++) {
+            cells.put(i, in.readLong());
+        }
+    }
+}
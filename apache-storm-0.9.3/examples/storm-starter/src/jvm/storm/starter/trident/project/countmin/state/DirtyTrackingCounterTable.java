@@ -0,0 +1,133 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Wraps a counter table and remembers which blocks of BLOCK_CELLS counters
+ * were written, so a snapshot only has to copy the blocks that changed.
+ */
+class DirtyTrackingCounterTable extends CounterTable {
+
+    private static final long serialVersionUID = 3260829516483398001L;
+
+    // 512 counters are one 4k page of the snapshot image.
+    static final int BLOCK_SHIFT = 9;
+    static final int BLOCK_CELLS = 1 << BLOCK_SHIFT;
+
+    final CounterTable delegate;
+    // One bit per block.
+    long[] dirty;
+
+    DirtyTrackingCounterTable(CounterTable delegate) {
+        super(delegate.depth(), delegate.width());
+        this.delegate = delegate;
+        this.dirty = new long[(blocks() + 63) >>> 6];
+    }
+
+    int blocks() {
+        return (int) (((long) depth * width + BLOCK_CELLS - 1) >>> BLOCK_SHIFT);
+    }
+
+    /**
+     * Hands out the dirty blocks since the last call and starts tracking afresh.
+     */
+    long[] takeDirty(long[] reuse) {
+        long[] taken = dirty;
+        if (reuse == null || reuse.length != taken.length) {
+            reuse = new long[taken.length];
+        } else {
+            Arrays.fill(reuse, 0L);
+        }
+        dirty = reuse;
+        return taken;
+    }
+
+    private void markCell(int row, int col) {
+        int block = (row * width + col) >>> BLOCK_SHIFT;
+        dirty[block >>> 6] |= 1L << block;
+    }
+
+    private void markRows(int fromRow, int toRow) {
+        if (fromRow >= toRow) {
+            return;
+        }
+        int last = (toRow * width - 1) >>> BLOCK_SHIFT;
+        for (int block = (fromRow * width) >>> BLOCK_SHIFT; block <= last; block++) {
+            dirty[block >>> 6] |= 1L << block;
+        }
+    }
+
+    private static CounterTable unwrap(CounterTable table) {
+        return table instanceof DirtyTrackingCounterTable ? ((DirtyTrackingCounterTable) table).delegate : table;
+    }
+
+    @Override
+    public Storage storage() {
+        return delegate.storage();
+    }
+
+    @Override
+    public long get(int row, int col) {
+        return delegate.get(row, col);
+    }
+
+    @Override
+    public void set(int row, int col, long value) {
+        delegate.set(row, col, value);
+        markCell(row, col);
+    }
+
+    @Override
+    public long add(int row, int col, long delta) {
+        markCell(row, col);
+        return delegate.add(row, col, delta);
+    }
+
+    @Override
+    public long minOf(int[] buckets) {
+        return delegate.minOf(buckets);
+    }
+
+    @Override
+    public long addAndMin(int[] buckets, long delta) {
+        for (int i = 0; i < depth; i++) {
+            markCell(i, buckets[i]);
+        }
+        return delegate.addAndMin(buckets, delta);
+    }
+
+    @Override
+    public void addRows(CounterTable other, int fromRow, int toRow) {
+        delegate.addRows(unwrap(other), fromRow, toRow);
+        markRows(fromRow, toRow);
+    }
+
+    @Override
+    public void subtractRows(CounterTable other, int fromRow, int toRow) {
+        delegate.subtractRows(unwrap(other), fromRow, toRow);
+        markRows(fromRow, toRow);
+    }
+
+    @Override
+    public void clearRows(int fromRow, int toRow) {
+        delegate.clearRows(fromRow, toRow);
+        markRows(fromRow, toRow);
+    }
+
+    @Override
+    public CounterTable emptyCopy() {
+        return delegate.emptyCopy();
+    }
+
+    @Override
+    public void writeCells(LongBuffer dst, int fromCell, int toCell) {
+        delegate.writeCells(dst, fromCell, toCell);
+    }
+
+    @Override
+    public void readCells(LongBuffer src) {
+        delegate.readCells(src);
+        markRows(0, depth);
+    }
+}
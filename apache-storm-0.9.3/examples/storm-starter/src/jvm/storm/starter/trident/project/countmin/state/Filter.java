@@ -21,13 +21,15 @@
 */
 package storm.starter.trident.project.countmin.state;
 
-import java.io.UnsupportedEncodingException;
-
+import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 
 //import MurmurHash;
 
-public abstract class Filter {
+public abstract class Filter implements Serializable {
+
+    private static final long serialVersionUID = 6013590433937591186L;
 
     int hashCount;
 
@@ -69,23 +71,51 @@ public abstract class Filter {
     // https://www.eecs.harvard.edu/~michaelm/postscripts/tr-02-05.pdf
     // does prove to work in actual tests, and is obviously faster
     // than performing further iterations of murmur.
+    // Both hashes are halves of the first 64 bits of one MurmurHash3 x64_128 pass,
+    // as in the 32 bit strategy of Guava's BloomFilter.
     public static int[] getHashBuckets(String key, int hashCount, int max) {
-        byte[] b;
-        try {
-            b = key.getBytes("UTF-16");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
-        }
-        return getHashBuckets(b, hashCount, max);
+        return getHashBuckets(key, hashCount, max, new int[hashCount]);
+    }
+
+    /**
+     * Same buckets as getHashBuckets(String, int, int) but written into the
+     * caller's array, hashing the UTF-16 chars of the key without encoding them.
+     *
+     * @return result
+     */
+    public static int[] getHashBuckets(CharSequence key, int hashCount, int max, int[] result) {
+        long hash = MurmurHash.hash3_x64_64(key, 0);
+        return toBuckets((int) hash, (int) (hash >>> 32), hashCount, max, result);
+    }
+
+    /**
+     * Buckets of the remaining bytes of the buffer, read in place.
+     *
+     * @return result
+     */
+    public static int[] getHashBuckets(ByteBuffer key, int hashCount, int max, int[] result) {
+        long hash = MurmurHash.hash3_x64_64(key, 0);
+        return toBuckets((int) hash, (int) (hash >>> 32), hashCount, max, result);
+    }
+
+    /**
+     * Buckets of a number, e.g. a tweet id, without boxing or encoding it.
+     *
+     * @return result
+     */
+    public static int[] getHashBuckets(long key, int hashCount, int max, int[] result) {
+        long hash = MurmurHash.hash3_x64_64(key, 0);
+        return toBuckets((int) hash, (int) (hash >>> 32), hashCount, max, result);
     }
 
     static int[] getHashBuckets(byte[] b, int hashCount, int max) {
-        int[] result = new int[hashCount];
-        int hash1 = MurmurHash.hash(b, b.length, 0);
-        int hash2 = MurmurHash.hash(b, b.length, hash1);
+        return getHashBuckets(ByteBuffer.wrap(b), hashCount, max, new int[hashCount]);
+    }
+
+    private static int[] toBuckets(int hash1, int hash2, int hashCount, int max, int[] result) {
         for (int i = 0; i < hashCount; i++) {
             result[i] = Math.abs((hash1 + i * hash2) % max);
         }
         return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,46 @@
+package storm.starter.trident.project.countmin.state;
+
+import backtype.storm.tuple.Values;
+import storm.trident.operation.TridentCollector;
+import storm.trident.state.BaseQueryFunction;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Query Function to return the estimated frequency of each queried word, so that
+ * many words can be looked up in a single DRPC call.
+ *
+ * Emits the estimate and its error bound: the true count lies within
+ * [estimate - error, estimate] with the confidence of the sketch.
+ */
+public class FrequencyQuery extends BaseQueryFunction<CountMinSketchState, Values> {
+
+    /**
+     * Returns the estimate and error bound of each input word as a Values pair.
+     */
+    public List<Values> batchRetrieve(CountMinSketchState state, List<TridentTuple> inputs) {
+        // The error bound is the same for every word of the batch.
+        long errorBound = (long) Math.ceil(state.getRelativeError() * state.size());
+        // Words are stored in lowercase, a word asked for twice in the batch is only hashed once.
+        Map<String, Values> estimates = new HashMap<String, Values>();
+        List<Values> ret = new ArrayList<Values>(inputs.size());
+        for (TridentTuple input : inputs) {
+            String word = input.getString(0).toLowerCase();
+            Values estimate = estimates.get(word);
+            if (estimate == null) {
+                estimate = new Values(state.estimateCount(word), errorBound);
+                estimates.put(word, estimate);
+            }
+            ret.add(estimate);
+        }
+        return ret;
+    }
+
+    public void execute(TridentTuple tuple, Values estimate, TridentCollector collector) {
+        collector.emit(estimate);
+    }
+}
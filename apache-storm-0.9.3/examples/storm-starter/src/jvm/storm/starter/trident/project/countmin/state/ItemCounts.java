@@ -0,0 +1,93 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from item to a primitive long count.
+ * Meant to be cleared and reused, so counting a batch allocates nothing once
+ * the map has grown to the number of distinct items in a batch.
+ */
+class ItemCounts {
+
+    private String[] keys;
+    private long[] counts;
+    // Slots in the order they were first used, so iterating and clearing only visit used slots.
+    private int[] used;
+    private int size;
+
+    ItemCounts() {
+        this(64);
+    }
+
+    ItemCounts(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+        keys = new String[capacity];
+        counts = new long[capacity];
+        used = new int[capacity / 2];
+    }
+
+    /**
+     * Adds delta to the count of the key.
+     */
+    void add(String key, long delta) {
+        int mask = keys.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+        while (keys[slot] != null) {
+            if (keys[slot].equals(key)) {
+                counts[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = delta;
+        used[size++] = slot;
+        if (size == used.length) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the i-th distinct key, in the order the keys were first added.
+     */
+    String key(int i) {
+        return keys[used[i]];
+    }
+
+    long count(int i) {
+        return counts[used[i]];
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            keys[used[i]] = null;
+        }
+        size = 0;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        long[] oldCounts = counts;
+        int[] oldUsed = used;
+        int oldSize = size;
+
+        keys = new String[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        used = new int[oldUsed.length * 2];
+        size = 0;
+        for (int i = 0; i < oldSize; i++) {
+            add(oldKeys[oldUsed[i]], oldCounts[oldUsed[i]]);
+        }
+        Arrays.fill(oldKeys, null);
+    }
+
+    private static int mix(int h) {
+        // Spreads the high bits down, String hash codes of short words differ mostly in the low bits.
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
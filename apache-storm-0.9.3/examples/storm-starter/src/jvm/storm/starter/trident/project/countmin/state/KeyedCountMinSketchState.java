@@ -0,0 +1,102 @@
+package storm.starter.trident.project.countmin.state;
+
+import backtype.storm.task.IMetricsContext;
+import storm.trident.state.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A count-min sketch and top-k per dimension, e.g. per content type of the
+ * tweets: hashtags, mentioned accounts, urls and places each trend on their own.
+ *
+ * The sketch of a dimension is made by a CountMinSketchStateFactory the first
+ * time an item of it is added, with that factory's size and memory budget. At
+ * most maxDimensions are tracked, items of any further dimension are dropped so
+ * that a stray key cannot grow the state without bounds.
+ */
+public class KeyedCountMinSketchState implements State {
+
+    private final CountMinSketchStateFactory dimensionFactory;
+    private final int maxDimensions;
+    private final Map conf;
+    private final IMetricsContext metrics;
+    private final int partitionIndex;
+    private final int numPartitions;
+    // Written by the partition, read by queries.
+    private final ConcurrentMap<String, CountMinSketchState> dimensions =
+            new ConcurrentHashMap<String, CountMinSketchState>();
+    private long droppedItems;
+
+    KeyedCountMinSketchState(CountMinSketchStateFactory dimensionFactory, int maxDimensions,
+                             Map conf, IMetricsContext metrics, int partitionIndex, int numPartitions) {
+        this.dimensionFactory = dimensionFactory;
+        this.maxDimensions = maxDimensions;
+        this.conf = conf;
+        this.metrics = metrics;
+        this.partitionIndex = partitionIndex;
+        this.numPartitions = numPartitions;
+    }
+
+    public void add(String dimension, String item, long count) {
+        CountMinSketchState state = dimensions.get(dimension);
+        if (state == null) {
+            if (dimensions.size() >= maxDimensions) {
+                droppedItems += count;
+                return;
+            }
+            state = (CountMinSketchState) dimensionFactory.makeState(conf, metrics, partitionIndex, numPartitions);
+            dimensions.put(dimension, state);
+        }
+        state.add(item, count);
+    }
+
+    /**
+     * Returns the sketch of the dimension, or null if none of its items were added.
+     */
+    public CountMinSketchState get(String dimension) {
+        return dimensions.get(dimension);
+    }
+
+    /**
+     * Returns the dimensions tracked so far, sorted by name.
+     */
+    public List<String> dimensions() {
+        List<String> names = new ArrayList<String>(dimensions.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Total count of the items dropped because they came past maxDimensions.
+     */
+    public long droppedItems() {
+        return droppedItems;
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (CountMinSketchState state : dimensions.values()) {
+            bytes += state.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void beginCommit(Long txid) {
+        for (CountMinSketchState state : dimensions.values()) {
+            state.beginCommit(txid);
+        }
+    }
+
+    @Override
+    public void commit(Long txid) {
+        for (CountMinSketchState state : dimensions.values()) {
+            state.commit(txid);
+        }
+    }
+}
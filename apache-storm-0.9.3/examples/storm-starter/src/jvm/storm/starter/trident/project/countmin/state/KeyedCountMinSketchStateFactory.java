@@ -0,0 +1,37 @@
+package storm.starter.trident.project.countmin.state;
+
+import backtype.storm.task.IMetricsContext;
+import storm.trident.state.State;
+import storm.trident.state.StateFactory;
+
+import java.util.Map;
+
+/**
+ * Makes a KeyedCountMinSketchState per partition, whose dimensions each get a
+ * sketch made by the given factory.
+ */
+public class KeyedCountMinSketchStateFactory implements StateFactory {
+
+    protected CountMinSketchStateFactory dimensionFactory;
+    protected int maxDimensions;
+
+    /**
+     * @throws IllegalArgumentException if the dimension factory makes shared states or
+     * snapshots, whose workers or files would be the same for every dimension
+     */
+    public KeyedCountMinSketchStateFactory(CountMinSketchStateFactory dimensionFactory, int maxDimensions) {
+        if (dimensionFactory.sharedId != null || dimensionFactory.snapshotDirectory != null) {
+            throw new IllegalArgumentException("Dimensions support neither shared states nor snapshots");
+        }
+        if (maxDimensions <= 0) {
+            throw new IllegalArgumentException("Max dimensions must be positive");
+        }
+        this.dimensionFactory = dimensionFactory;
+        this.maxDimensions = maxDimensions;
+    }
+
+    @Override
+    public State makeState(Map conf, IMetricsContext metrics, int partitionIndex, int numPartitions) {
+        return new KeyedCountMinSketchState(dimensionFactory, maxDimensions, conf, metrics, partitionIndex, numPartitions);
+    }
+}
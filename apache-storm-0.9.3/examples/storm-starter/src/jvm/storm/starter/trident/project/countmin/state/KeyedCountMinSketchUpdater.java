@@ -0,0 +1,44 @@
+package storm.starter.trident.project.countmin.state;
+
+import storm.trident.operation.TridentCollector;
+import storm.trident.state.BaseStateUpdater;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds (dimension, item) tuples to a KeyedCountMinSketchState.
+ */
+public class KeyedCountMinSketchUpdater extends BaseStateUpdater<KeyedCountMinSketchState> {
+
+    // Occurrences of each distinct item in the current batch by dimension, reused from batch to batch.
+    private transient Map<String, ItemCounts> batchCounts;
+
+    public void updateState(KeyedCountMinSketchState state, List<TridentTuple> tuples, TridentCollector collector) {
+        if (batchCounts == null) {
+            batchCounts = new HashMap<String, ItemCounts>();
+        }
+        for (TridentTuple t : tuples) {
+            String dimension = t.getString(0);
+            String item = t.getString(1);
+            if (dimension == null || item == null) {
+                continue;
+            }
+            ItemCounts counts = batchCounts.get(dimension);
+            if (counts == null) {
+                counts = new ItemCounts();
+                batchCounts.put(dimension, counts);
+            }
+            counts.add(item, 1);
+        }
+        for (Map.Entry<String, ItemCounts> entry : batchCounts.entrySet()) {
+            ItemCounts counts = entry.getValue();
+            for (int i = 0; i < counts.size(); i++) {
+                state.add(entry.getKey(), counts.key(i), counts.count(i));
+            }
+            counts.clear();
+        }
+    }
+}
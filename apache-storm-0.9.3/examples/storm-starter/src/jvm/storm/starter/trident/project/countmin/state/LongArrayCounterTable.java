@@ -0,0 +1,142 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Counter table backed by one row-major long[] on the heap.
+ */
+class LongArrayCounterTable extends CounterTable {
+
+    private static final long serialVersionUID = 2710348751185736413L;
+
+    long[] cells;
+
+    LongArrayCounterTable(int depth, int width) {
+        super(depth, width);
+        this.cells = new long[depth * width];
+    }
+
+    @Override
+    public Storage storage() {
+        return Storage.HEAP;
+    }
+
+    @Override
+    public long get(int row, int col) {
+        return cells[row * width + col];
+    }
+
+    @Override
+    public void set(int row, int col, long value) {
+        cells[row * width + col] = value;
+    }
+
+    @Override
+    public long add(int row, int col, long delta) {
+        return cells[row * width + col] += delta;
+    }
+
+    // The kernels below walk the rows with a running offset and keep four independent
+    // minimums, so the loads of consecutive rows do not wait on each other's compare.
+
+    @Override
+    public long minOf(int[] buckets) {
+        long[] cells = this.cells;
+        int width = this.width;
+        long m0 = Long.MAX_VALUE, m1 = Long.MAX_VALUE, m2 = Long.MAX_VALUE, m3 = Long.MAX_VALUE;
+        int i = 0;
+        int offset = 0;
+        for (; i + 3 < depth; i += 4, offset += 4 * width) {
+            m0 = Math.min(m0, cells[offset + buckets[i]]);
+            m1 = Math.min(m1, cells[offset + width + buckets[i + 1]]);
+            m2 = Math.min(m2, cells[offset + 2 * width + buckets[i + 2]]);
+            m3 = Math.min(m3, cells[offset + 3 * width + buckets[i + 3]]);
+        }
+        for (; i < depth; i++, offset += width) {
+            m0 = Math.min(m0, cells[offset + buckets[i]]);
+        }
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    @Override
+    public long addAndMin(int[] buckets, long delta) {
+        long[] cells = this.cells;
+        int width = this.width;
+        long m0 = Long.MAX_VALUE, m1 = Long.MAX_VALUE, m2 = Long.MAX_VALUE, m3 = Long.MAX_VALUE;
+        int i = 0;
+        int offset = 0;
+        for (; i + 3 < depth; i += 4, offset += 4 * width) {
+            m0 = Math.min(m0, cells[offset + buckets[i]] += delta);
+            m1 = Math.min(m1, cells[offset + width + buckets[i + 1]] += delta);
+            m2 = Math.min(m2, cells[offset + 2 * width + buckets[i + 2]] += delta);
+            m3 = Math.min(m3, cells[offset + 3 * width + buckets[i + 3]] += delta);
+        }
+        for (; i < depth; i++, offset += width) {
+            m0 = Math.min(m0, cells[offset + buckets[i]] += delta);
+        }
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    @Override
+    public void addRows(CounterTable other, int fromRow, int toRow) {
+        if (!(other instanceof LongArrayCounterTable)) {
+            super.addRows(other, fromRow, toRow);
+            return;
+        }
+        checkSameShape(other);
+        long[] src = ((LongArrayCounterTable) other).cells;
+        // Both tables share the same layout so the rows are one contiguous range.
+        for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+            cells[i] += src[i];
+        }
+    }
+
+    @Override
+    public void subtractRows(CounterTable other, int fromRow, int toRow) {
+        if (!(other instanceof LongArrayCounterTable)) {
+            super.subtractRows(other, fromRow, toRow);
+            return;
+        }
+        checkSameShape(other);
+        long[] src = ((LongArrayCounterTable) other).cells;
+        for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+            cells[i] -= src[i];
+        }
+    }
+
+    @Override
+    public void clearRows(int fromRow, int toRow) {
+        Arrays.fill(cells, fromRow * width, toRow * width, 0L);
+    }
+
+    @Override
+    public CounterTable fold() {
+        if (width % 2 != 0) {
+            return super.fold();
+        }
+        int half = width / 2;
+        LongArrayCounterTable folded = new LongArrayCounterTable(depth, half);
+        long[] dst = folded.cells;
+        for (int i = 0, from = 0, to = 0; i < depth; i++, from += width, to += half) {
+            for (int j = 0; j < half; j++) {
+                dst[to + j] = cells[from + j] + cells[from + half + j];
+            }
+        }
+        return folded;
+    }
+
+    @Override
+    public void writeCells(LongBuffer dst, int fromCell, int toCell) {
+        LongBuffer target = dst.duplicate();
+        target.position(fromCell);
+        target.put(cells, fromCell, toCell - fromCell);
+    }
+
+    @Override
+    public void readCells(LongBuffer src) {
+        LongBuffer source = src.duplicate();
+        source.position(0);
+        source.get(cells);
+    }
+}
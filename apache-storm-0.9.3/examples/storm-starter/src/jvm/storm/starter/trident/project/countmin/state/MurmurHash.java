@@ -1,5 +1,8 @@
 package storm.starter.trident.project.countmin.state;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Licensed to the Apache Software Foundation (ASF) under one or more
  * contributor license agreements. See the NOTICE file distributed with this
@@ -148,6 +151,177 @@ public class MurmurHash {
         return hash64(o.toString());
     }
 
+    // MurmurHash3 x64 128 bit, after the reference implementation at
+    // https://github.com/aappleby/smhasher/blob/master/src/MurmurHash3.cpp
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    /**
+     * 128 bit MurmurHash3 of the remaining bytes of the buffer, read in place.
+     * The two 64 bit halves are written to result[0] and result[1].
+     * The position of the buffer is not changed.
+     *
+     * @return result
+     */
+    public static long[] hash3_x64_128(ByteBuffer data, int seed, long[] result) {
+        hash3(data, seed, result);
+        return result;
+    }
+
+    /**
+     * The first 64 bits of hash3_x64_128 of the remaining bytes of the buffer,
+     * without an array for the result.
+     */
+    public static long hash3_x64_64(ByteBuffer data, int seed) {
+        return hash3(data, seed, null);
+    }
+
+    private static long hash3(ByteBuffer data, int seed, long[] result) {
+        ByteBuffer in = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int length = in.remaining();
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+
+        int blocks = length >>> 4;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = in.getLong(i << 4);
+            long k2 = in.getLong((i << 4) + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks << 4;
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = length - 1; i >= tail + 8; i--) {
+            k2 = k2 << 8 | (in.get(i) & 0xff);
+        }
+        for (int i = Math.min(length, tail + 8) - 1; i >= tail; i--) {
+            k1 = k1 << 8 | (in.get(i) & 0xff);
+        }
+        return finish128(h1, h2, k1, k2, length, result);
+    }
+
+    /**
+     * Same result as hash3_x64_128 over the UTF-16LE bytes of the chars, without
+     * encoding them first.
+     *
+     * @return result
+     */
+    public static long[] hash3_x64_128(CharSequence s, int seed, long[] result) {
+        hash3(s, seed, result);
+        return result;
+    }
+
+    /**
+     * The first 64 bits of hash3_x64_128 of the chars, without an array for the result.
+     */
+    public static long hash3_x64_64(CharSequence s, int seed) {
+        return hash3(s, seed, null);
+    }
+
+    /**
+     * The first 64 bits of hash3_x64_128 of the 8 little endian bytes of the value,
+     * e.g. of a tweet id.
+     */
+    public static long hash3_x64_64(long data, int seed) {
+        long h = seed & 0xffffffffL;
+        return finish128(h, h, data, 0, 8, null);
+    }
+
+    private static long hash3(CharSequence s, int seed, long[] result) {
+        int chars = s.length();
+        int length = chars << 1;
+        long h1 = seed & 0xffffffffL;
+        long h2 = h1;
+
+        // A block of 16 bytes is 8 chars, each long 4 of them with the first one lowest.
+        int blocks = chars >>> 3;
+        for (int i = 0; i < blocks; i++) {
+            int c = i << 3;
+            long k1 = s.charAt(c) | (long) s.charAt(c + 1) << 16
+                    | (long) s.charAt(c + 2) << 32 | (long) s.charAt(c + 3) << 48;
+            long k2 = s.charAt(c + 4) | (long) s.charAt(c + 5) << 16
+                    | (long) s.charAt(c + 6) << 32 | (long) s.charAt(c + 7) << 48;
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = blocks << 3;
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = chars - 1; i >= tail + 4; i--) {
+            k2 = k2 << 16 | s.charAt(i);
+        }
+        for (int i = Math.min(chars, tail + 4) - 1; i >= tail; i--) {
+            k1 = k1 << 16 | s.charAt(i);
+        }
+        return finish128(h1, h2, k1, k2, length, result);
+    }
+
+    // Returns the first half and writes both to result unless it is null.
+    private static long finish128(long h1, long h2, long k1, long k2, int length, long[] result) {
+        // A tail word is mixed in whenever bytes are left for it, even if they are all zero.
+        int left = length & 15;
+        if (left > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (left > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        if (result != null) {
+            result[0] = h1;
+            result[1] = h2;
+        }
+        return h1;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
     // 64 bit implementation copied from here:  https://github.com/tnm/murmurhash-java
 
     /**
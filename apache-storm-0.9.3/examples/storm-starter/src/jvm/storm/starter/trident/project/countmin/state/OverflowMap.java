@@ -0,0 +1,102 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open addressing map from a cell index to its full long value, for the few
+ * cells of a compact counter table that do not fit their base counter.
+ */
+class OverflowMap implements Serializable {
+
+    private static final long serialVersionUID = 5873019746508262712L;
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    OverflowMap() {
+        keys = new int[16];
+        values = new long[16];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int key) {
+        int slot = find(key);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    void put(int key, long value) {
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+            if (size * 2 > keys.length) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    void remove(int key) {
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            return;
+        }
+        // Shift later entries of the probe sequence back so lookups never stop at the hole.
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+    }
+
+    long sizeInBytes() {
+        return keys.length * 12L;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int h) {
+        // Neighbouring cells of a row would otherwise fill neighbouring slots.
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,197 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Bloom filter that only remembers the items of a sliding time window, so that
+ * its memory stays bounded however long the stream runs.
+ *
+ * The window is split into numSlots intervals, each with its own BloomFilter.
+ * Items are added to the filter of the current interval and looked up in all of
+ * them; when an interval falls out of the window its filter is cleared and
+ * reused for the next one. An item is remembered for at least
+ * (numSlots - 1) * slotLengthMs and at most numSlots * slotLengthMs.
+ */
+public class RotatingBloomFilter extends Filter {
+
+    private static final long serialVersionUID = -2113947651316587284L;
+
+    final BloomFilter[] slots;
+    final long slotLengthMs;
+    int current;
+    long slotStartMs;
+
+    /**
+     * Each interval holds up to expectedItemsPerSlot items at the given false positive
+     * rate, a lookup across all of them has up to numSlots times that rate.
+     */
+    public RotatingBloomFilter(int numSlots, long slotLengthMs, long expectedItemsPerSlot, double falsePositiveRate) {
+        this(newSlots(numSlots, expectedItemsPerSlot, falsePositiveRate), slotLengthMs, 0, System.currentTimeMillis());
+    }
+
+    RotatingBloomFilter(BloomFilter[] slots, long slotLengthMs, int current, long slotStartMs) {
+        if (slots.length <= 0 || slotLengthMs <= 0) {
+            throw new IllegalArgumentException("Number of slots and slot length must be positive");
+        }
+        if (current < 0 || current >= slots.length) {
+            throw new IllegalArgumentException("Current slot " + current + " out of " + slots.length);
+        }
+        for (BloomFilter slot : slots) {
+            slots[0].checkCompatible(slot);
+        }
+        this.slots = slots;
+        this.slotLengthMs = slotLengthMs;
+        this.current = current;
+        this.slotStartMs = slotStartMs;
+        this.hashCount = slots[0].hashCount;
+    }
+
+    private static BloomFilter[] newSlots(int numSlots, long expectedItems, double falsePositiveRate) {
+        if (numSlots <= 0) {
+            throw new IllegalArgumentException("Number of slots and slot length must be positive");
+        }
+        BloomFilter[] slots = new BloomFilter[numSlots];
+        for (int i = 0; i < numSlots; i++) {
+            slots[i] = BloomFilter.forExpectedItems(expectedItems, falsePositiveRate);
+        }
+        return slots;
+    }
+
+    /**
+     * Length of the whole window in milliseconds.
+     */
+    public long getWindowLengthMs() {
+        return slots.length * slotLengthMs;
+    }
+
+    /**
+     * Moves the window up to the given time, forgetting the intervals that fell out of it.
+     */
+    void advance(long nowMs) {
+        if (nowMs - slotStartMs < slotLengthMs) {
+            return;
+        }
+        long elapsed = (nowMs - slotStartMs) / slotLengthMs;
+        // Idle for longer than the whole window, every interval has expired.
+        int rotations = (int) Math.min(elapsed, slots.length);
+        for (int i = 0; i < rotations; i++) {
+            current = (current + 1) % slots.length;
+            slots[current].clear();
+        }
+        slotStartMs += elapsed * slotLengthMs;
+    }
+
+    @Override
+    int buckets() {
+        return slots[0].numBits;
+    }
+
+    @Override
+    public void add(String key) {
+        advance(System.currentTimeMillis());
+        slots[current].add(key);
+    }
+
+    public void add(long key) {
+        advance(System.currentTimeMillis());
+        slots[current].add(key);
+    }
+
+    @Override
+    public boolean isPresent(String key) {
+        advance(System.currentTimeMillis());
+        // All the slots have the same size and hash count, so the key is hashed once.
+        return isPresent(slots[current].buckets(key));
+    }
+
+    public boolean isPresent(long key) {
+        advance(System.currentTimeMillis());
+        return isPresent(slots[current].buckets(key));
+    }
+
+    /**
+     * Adds the key to the current interval and tells whether it was seen within the window.
+     */
+    public boolean addAndCheck(long key) {
+        advance(System.currentTimeMillis());
+        int[] buckets = slots[current].buckets(key);
+        boolean present = isPresent(buckets);
+        slots[current].set(buckets);
+        return present;
+    }
+
+    private boolean isPresent(int[] buckets) {
+        for (BloomFilter slot : slots) {
+            if (slot.isSet(buckets)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bytes used by the bits of all the intervals.
+     */
+    public long sizeInBytes() {
+        return slots.length * slots[0].sizeInBytes();
+    }
+
+    @Override
+    int emptyBuckets() {
+        return slots[current].emptyBuckets();
+    }
+
+    private static final RotatingBloomFilterSerializer serializer_ = new RotatingBloomFilterSerializer();
+
+    public static ICompactSerializer<RotatingBloomFilter> serializer() {
+        return serializer_;
+    }
+
+    /**
+     * Writes the interval length, the current interval and its start time followed
+     * by the filter of every interval.
+     */
+    static class RotatingBloomFilterSerializer implements ICompactSerializer<RotatingBloomFilter> {
+
+        static final int MAGIC = 0x52424c46;
+        static final byte VERSION = 1;
+
+        @Override
+        public void serialize(RotatingBloomFilter filter, DataOutputStream dos) throws IOException {
+            dos.writeInt(MAGIC);
+            dos.writeByte(VERSION);
+            CountMinSketchStateSerializer.writeVarLong(dos, filter.slots.length);
+            CountMinSketchStateSerializer.writeVarLong(dos, filter.slotLengthMs);
+            CountMinSketchStateSerializer.writeVarLong(dos, filter.current);
+            dos.writeLong(filter.slotStartMs);
+            for (BloomFilter slot : filter.slots) {
+                BloomFilter.serializer().serialize(slot, dos);
+            }
+        }
+
+        @Override
+        public RotatingBloomFilter deserialize(DataInputStream dis) throws IOException {
+            if (dis.readInt() != MAGIC) {
+                throw new IOException("Not a serialized rotating bloom filter");
+            }
+            byte version = dis.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported rotating bloom filter version " + version);
+            }
+            BloomFilter[] slots = new BloomFilter[(int) CountMinSketchStateSerializer.readVarLong(dis)];
+            long slotLengthMs = CountMinSketchStateSerializer.readVarLong(dis);
+            int current = (int) CountMinSketchStateSerializer.readVarLong(dis);
+            long slotStartMs = dis.readLong();
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = BloomFilter.serializer().deserialize(dis);
+            }
+            try {
+                return new RotatingBloomFilter(slots, slotLengthMs, current, slotStartMs);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt rotating bloom filter", e);
+            }
+        }
+    }
+}
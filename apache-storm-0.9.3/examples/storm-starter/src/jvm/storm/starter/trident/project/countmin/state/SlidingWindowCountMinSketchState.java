@@ -0,0 +1,187 @@
+package storm.starter.trident.project.countmin.state;
+
+/**
+ * Count-Min Sketch that only counts the items of a sliding time window, so the
+ * top-k follows what is trending instead of settling on all-time frequent words.
+ *
+ * The window is split into numSlots intervals, each with its own sub-table, and
+ * the inherited table holds the sum of the live intervals so that estimates cost
+ * the same as in the all-time sketch. When an interval falls out of the window its
+ * counts are subtracted from the sum a few rows per batch instead of in one sweep.
+ * While that happens the rows not yet drained still include the expired counts,
+ * so estimates remain upper bounds of the windowed counts.
+ */
+public class SlidingWindowCountMinSketchState extends CountMinSketchState {
+
+    private static final long serialVersionUID = -4302568931148925717L;
+
+    // Number of batches an expired interval is drained over.
+    static final int DRAIN_STEPS = 8;
+
+    int numSlots;
+    long slotLengthMs;
+    // One sub-table per interval of the window plus one for the interval being drained.
+    CounterTable[] slots;
+    long[] slotSizes;
+    int current;
+    long slotStartMs;
+    // Slot whose counts are being subtracted from the table, or -1.
+    int draining = -1;
+    int drainedRows;
+
+    public SlidingWindowCountMinSketchState(int depth, int width, int seed, int k, CounterTable.Storage storage,
+                                            int numSlots, long slotLengthMs) {
+        super(depth, width, seed, k, storage);
+        if (numSlots <= 0 || slotLengthMs <= 0) {
+            throw new IllegalArgumentException("Number of slots and slot length must be positive");
+        }
+        this.numSlots = numSlots;
+        this.slotLengthMs = slotLengthMs;
+        this.slots = new CounterTable[numSlots + 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = table.emptyCopy();
+        }
+        this.slotSizes = new long[numSlots + 1];
+        this.slotStartMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Length of the whole window in milliseconds.
+     */
+    public long getWindowLengthMs() {
+        return numSlots * slotLengthMs;
+    }
+
+    /**
+     * Conservative update raises counters to values that do not add up per interval,
+     * so they could not be subtracted again when the interval expires.
+     */
+    @Override
+    public void setConservativeUpdate(boolean conservativeUpdate) {
+        if (conservativeUpdate) {
+            throw new UnsupportedOperationException("Conservative update is not supported on a sliding window");
+        }
+    }
+
+    @Override
+    public void add(long item, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative increments not implemented");
+        }
+        for (int i = 0; i < depth; ++i) {
+            int bucket = hash(item, i);
+            table.add(i, bucket, count);
+            slots[current].add(i, bucket, count);
+        }
+        size += count;
+        slotSizes[current] += count;
+    }
+
+    @Override
+    public long addAndEstimate(String item, long count) {
+        int[] buckets = bucketsOf(item);
+        CounterTable slot = slots[current];
+        for (int i = 0; i < depth; ++i) {
+            slot.add(i, buckets[i], count);
+        }
+        long res = table.addAndMin(buckets, count);
+        size += count;
+        slotSizes[current] += count;
+        return res;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = table.sizeInBytes();
+        for (CounterTable slot : slots) {
+            bytes += slot.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Folds the intervals along with the sum, which stays their total column by column.
+     */
+    @Override
+    public void fold() {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slots[i].fold();
+        }
+        super.fold();
+    }
+
+    @Override
+    public void beginCommit(Long txid) {
+        advance(System.currentTimeMillis());
+    }
+
+    /**
+     * Moves the window up to the given time and drains part of an expired interval.
+     */
+    void advance(long nowMs) {
+        int rotations = 0;
+        while (nowMs - slotStartMs >= slotLengthMs) {
+            slotStartMs += slotLengthMs;
+            if (rotations++ > numSlots) {
+                // Idle for longer than the whole window, every interval has expired.
+                expireAll(nowMs);
+                break;
+            }
+            rotate();
+        }
+        if (draining >= 0) {
+            drain(Math.max(1, (depth + DRAIN_STEPS - 1) / DRAIN_STEPS));
+        }
+    }
+
+    private void rotate() {
+        // The slot after the current one is the one drained last, it must be empty before reuse.
+        if (draining >= 0) {
+            drain(depth);
+        }
+        current = (current + 1) % slots.length;
+        // The oldest live interval falls out of the window.
+        draining = (current + 1) % slots.length;
+        drainedRows = 0;
+        size -= slotSizes[draining];
+        slotSizes[draining] = 0;
+    }
+
+    private void drain(int rows) {
+        int toRow = Math.min(depth, drainedRows + rows);
+        table.subtractRows(slots[draining], drainedRows, toRow);
+        slots[draining].clearRows(drainedRows, toRow);
+        drainedRows = toRow;
+        if (drainedRows == depth) {
+            draining = -1;
+        }
+        refreshTopK();
+    }
+
+    private void expireAll(long nowMs) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i].clearRows(0, depth);
+            slotSizes[i] = 0;
+        }
+        table.clearRows(0, depth);
+        size = 0;
+        draining = -1;
+        heap.clear();
+        slotStartMs = nowMs;
+    }
+
+    /**
+     * Re-estimates the tracked items against the drained table so the top-k
+     * reflects the counts of the window, dropping items no longer seen in it.
+     */
+    private void refreshTopK() {
+        for (String item : heap.items()) {
+            long count = estimateCount(item);
+            if (count > 0) {
+                heap.offer(item, count);
+            } else {
+                heap.remove(item);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Durable copy of a CountMinSketchState in a local memory-mapped file, updated on
+ * every Trident commit so a restarted worker picks up its counts where it stopped.
+ *
+ * The file holds a header page and two images of the counter table. A commit copies
+ * the blocks written since the last commit into the image that is not current,
+ * forces it to disk and only then flips the header to it, so a crash part way
+ * through leaves the previous snapshot intact. The image being written is two
+ * commits behind, hence the blocks of the previous commit are copied again.
+ * Every FULL_WRITE_INTERVAL commits both images are rewritten in full.
+ *
+ * The size and the top-k items are small and change with every batch; they go
+ * to a sidecar file per image, replaced by a rename before the header flips.
+ */
+class SnapshotFile {
+
+    static final int MAGIC = 0x434d5346;
+    static final int META_MAGIC = 0x434d534d;
+    // Version 2 hashes words with MurmurHash3, the counters of version 1 sit in other buckets.
+    static final int VERSION = 2;
+
+    static final int HEADER_BYTES = 4096;
+    private static final int DEPTH_OFFSET = 8;
+    private static final int WIDTH_OFFSET = 12;
+    // txid << 1 | current image, a single aligned long so the flip is one write. -1 before the first commit.
+    private static final int COMMITTED_OFFSET = 16;
+
+    static final int FULL_WRITE_INTERVAL = 1000;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    final File file;
+    final int depth;
+    final int width;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] images = new MappedByteBuffer[2];
+    private final LongBuffer[] cells = new LongBuffer[2];
+    private long committed;
+    private long commits;
+    // Blocks copied by the previous commit, and the spare set handed back to the table.
+    private long[] previousDirty;
+    private long[] spare;
+
+    SnapshotFile(File file, int depth, int width) throws IOException {
+        this.file = file;
+        this.depth = depth;
+        this.width = width;
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create snapshot directory " + dir);
+        }
+        long imageBytes = (long) depth * width * 8;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            boolean fresh = raf.length() == 0;
+            if (fresh) {
+                raf.setLength(HEADER_BYTES + 2 * imageBytes);
+            } else if (raf.length() != HEADER_BYTES + 2 * imageBytes) {
+                throw new IOException("Snapshot " + file + " does not hold a " + depth + "x" + width + " table");
+            }
+            FileChannel channel = raf.getChannel();
+            // The mappings stay valid once the file is closed.
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            for (int i = 0; i < 2; i++) {
+                images[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + i * imageBytes, imageBytes);
+                cells[i] = images[i].asLongBuffer();
+            }
+            if (fresh) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(DEPTH_OFFSET, depth);
+                header.putInt(WIDTH_OFFSET, width);
+                header.putLong(COMMITTED_OFFSET, -1);
+                header.force();
+            } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a count-min sketch snapshot");
+            } else if (header.getInt(DEPTH_OFFSET) != depth || header.getInt(WIDTH_OFFSET) != width) {
+                throw new IOException("Snapshot " + file + " holds a " + header.getInt(DEPTH_OFFSET) + "x"
+                        + header.getInt(WIDTH_OFFSET) + " table, expected " + depth + "x" + width);
+            }
+            committed = header.getLong(COMMITTED_OFFSET);
+        } finally {
+            raf.close();
+        }
+    }
+
+    boolean hasSnapshot() {
+        return committed >= 0;
+    }
+
+    /**
+     * Returns the txid of the last commit in the file, or -1 if there is none.
+     */
+    long txid() {
+        return committed < 0 ? -1 : committed >>> 1;
+    }
+
+    private int currentImage() {
+        return (int) (committed & 1);
+    }
+
+    private File metaFile(int image) {
+        return new File(file.getPath() + ".meta" + image);
+    }
+
+    /**
+     * Restores the state from the last commit in the file, if any, and makes
+     * every following commit of the state write to this file.
+     */
+    void attach(CountMinSketchState state) throws IOException {
+        if (state.table instanceof DirtyTrackingCounterTable) {
+            throw new IllegalStateException("State already has a snapshot");
+        }
+        DirtyTrackingCounterTable table = new DirtyTrackingCounterTable(state.table);
+        previousDirty = new long[table.dirty.length];
+        if (hasSnapshot()) {
+            readMeta(state, currentImage());
+            state.table.readCells(cells[currentImage()]);
+            // Which blocks the other image lacks is lost with the process, the first commit rewrites all of them.
+            Arrays.fill(previousDirty, -1L);
+        }
+        state.table = table;
+        state.snapshot = this;
+    }
+
+    void commit(CountMinSketchState state, long txid) throws IOException {
+        DirtyTrackingCounterTable table = (DirtyTrackingCounterTable) state.table;
+        int target = hasSnapshot() ? 1 - currentImage() : 0;
+        long[] dirty = table.takeDirty(spare);
+        boolean full = commits++ % FULL_WRITE_INTERVAL >= FULL_WRITE_INTERVAL - 2;
+
+        int blocks = table.blocks();
+        int cellCount = depth * width;
+        for (int block = 0; block < blocks; ) {
+            if (!full && !isSet(dirty, block) && !isSet(previousDirty, block)) {
+                block++;
+                continue;
+            }
+            // Copy a run of neighbouring blocks at once.
+            int end = block + 1;
+            while (end < blocks && (full || isSet(dirty, end) || isSet(previousDirty, end))) {
+                end++;
+            }
+            table.writeCells(cells[target], block << DirtyTrackingCounterTable.BLOCK_SHIFT,
+                    (int) Math.min((long) end << DirtyTrackingCounterTable.BLOCK_SHIFT, cellCount));
+            block = end;
+        }
+        images[target].force();
+        writeMeta(state, target, txid);
+
+        committed = txid << 1 | target;
+        header.putLong(COMMITTED_OFFSET, committed);
+        header.force();
+
+        spare = previousDirty;
+        previousDirty = dirty;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void writeMeta(CountMinSketchState state, int image, long txid) throws IOException {
+        File tmp = new File(file.getPath() + ".meta.tmp");
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(META_MAGIC);
+            out.writeLong(txid);
+            CountMinSketchStateSerializer.writeVarLong(out, state.size());
+            CountMinSketchStateSerializer.writeVarLong(out, depth);
+            for (int i = 0; i < depth; i++) {
+                CountMinSketchStateSerializer.writeVarLong(out, state.hashA[i]);
+            }
+            TopTweet[] top = state.getTopKItems();
+            CountMinSketchStateSerializer.writeVarLong(out, top.length);
+            for (TopTweet tweet : top) {
+                byte[] text = tweet.getText().getBytes(UTF8);
+                CountMinSketchStateSerializer.writeVarLong(out, text.length);
+                out.write(text);
+                CountMinSketchStateSerializer.writeVarLong(out, tweet.getCount());
+            }
+            out.flush();
+            fos.getFD().sync();
+        } finally {
+            fos.close();
+        }
+        Files.move(tmp.toPath(), metaFile(image).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readMeta(CountMinSketchState state, int image) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(metaFile(image))));
+        try {
+            if (in.readInt() != META_MAGIC || in.readLong() != txid()) {
+                throw new IOException("Snapshot metadata " + metaFile(image) + " does not match " + file);
+            }
+            long size = CountMinSketchStateSerializer.readVarLong(in);
+            long[] hashA = new long[(int) CountMinSketchStateSerializer.readVarLong(in)];
+            for (int i = 0; i < hashA.length; i++) {
+                hashA[i] = CountMinSketchStateSerializer.readVarLong(in);
+            }
+            if (!Arrays.equals(hashA, state.hashA)) {
+                throw new IOException("Snapshot " + file + " was written with a different seed");
+            }
+            int entries = (int) CountMinSketchStateSerializer.readVarLong(in);
+            state.heap.clear();
+            for (int n = 0; n < entries; n++) {
+                byte[] text = new byte[(int) CountMinSketchStateSerializer.readVarLong(in)];
+                in.readFully(text);
+                state.heap.offer(new String(text, UTF8), CountMinSketchStateSerializer.readVarLong(in));
+            }
+            state.size = size;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -2,13 +2,11 @@
 package storm.starter.trident.project.countmin.state;
 
 import backtype.storm.tuple.Values;
-import org.apache.commons.lang.ArrayUtils;
 import storm.trident.operation.TridentCollector;
 import storm.trident.state.BaseQueryFunction;
 import storm.trident.tuple.TridentTuple;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -18,21 +16,14 @@ import java.util.List;
 
 public class TopKQuery extends BaseQueryFunction<CountMinSketchState, String> {
     public List<String> batchRetrieve(CountMinSketchState state, List<TridentTuple> inputs) {
-        StringBuilder out = new StringBuilder();
-        out.append(" ");
-        // Fetch all the words from the priority queue.
-        TopTweet[] topList = state.getTopKItems();
-        // Sort these words in increasing order of frequency.
-        Arrays.sort(topList);
-        // Reverse the sorted list to get decreasing order.
-        ArrayUtils.reverse(topList);
-        // Return all these words as a single String.
-        for(TopTweet toptweet : topList) {
-            out.append("[" + toptweet.getText() + ": " + toptweet.getCount() + "] ");
-        }
+        // The words sorted in decreasing order of frequency and rendered as a single String,
+        // only rebuilt by the state when the top-k has changed since the last query.
+        String top = state.getTopKSnapshot().toString();
 
-        List<String> ret = new ArrayList<String>();
-        ret.add(out.toString());
+        List<String> ret = new ArrayList<String>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            ret.add(top);
+        }
         return ret;
     }
 
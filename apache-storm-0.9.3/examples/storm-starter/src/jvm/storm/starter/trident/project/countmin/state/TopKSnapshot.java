@@ -0,0 +1,66 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable copy of the top-k of a sketch at one version, sorted by decreasing
+ * count and rendered once, so that repeated queries of an unchanged top-k cost
+ * neither a sort nor any string building.
+ */
+public final class TopKSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 4935367718043167095L;
+
+    static final Comparator<TopTweet> BY_DECREASING_COUNT = new Comparator<TopTweet>() {
+        @Override
+        public int compare(TopTweet a, TopTweet b) {
+            if (a.getCount() != b.getCount()) {
+                return a.getCount() > b.getCount() ? -1 : 1;
+            }
+            return a.getText().compareTo(b.getText());
+        }
+    };
+
+    private final long version;
+    private final List<TopTweet> items;
+    private final String rendered;
+
+    TopKSnapshot(long version, TopTweet[] items) {
+        TopTweet[] sorted = items.clone();
+        Arrays.sort(sorted, BY_DECREASING_COUNT);
+        this.version = version;
+        this.items = Collections.unmodifiableList(Arrays.asList(sorted));
+        StringBuilder out = new StringBuilder(16 * sorted.length + 1);
+        out.append(' ');
+        for (TopTweet tweet : sorted) {
+            out.append('[').append(tweet.getText()).append(": ").append(tweet.getCount()).append("] ");
+        }
+        this.rendered = out.toString();
+    }
+
+    /**
+     * Version of the top-k this snapshot was taken at.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The items by decreasing count. The TopTweets must not be modified.
+     */
+    public List<TopTweet> getItems() {
+        return items;
+    }
+
+    /**
+     * The items as "[word: count] " pairs by decreasing count.
+     */
+    @Override
+    public String toString() {
+        return rendered;
+    }
+}
@@ -0,0 +1,208 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the k items with the highest counts seen so far.
+ * The items are held in a binary min-heap together with a hash index from item
+ * to heap slot, so updating the count of a tracked item costs O(log k) instead of
+ * the linear contains/remove scans of a PriorityQueue.
+ */
+public class TopKTracker implements Serializable {
+
+    private static final long serialVersionUID = -6529434872086389453L;
+
+    int k;
+    int size;
+    // Min-heap on count, heap[0] is the item with the lowest count.
+    Entry[] heap;
+    Map<String, Entry> index;
+    // Changes on every update of the tracked items or their counts.
+    long version;
+
+    public TopKTracker(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.heap = new Entry[k];
+        this.index = new HashMap<String, Entry>(k * 2);
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a number that differs from the one returned before any change to
+     * the tracked items or their counts, so that views of them can be cached.
+     */
+    public long version() {
+        return version;
+    }
+
+    public boolean contains(String item) {
+        return index.containsKey(item);
+    }
+
+    /**
+     * Returns the tracked count of the item, or 0 if it is not in the top-k.
+     */
+    public long count(String item) {
+        Entry entry = index.get(item);
+        return entry == null ? 0 : entry.count;
+    }
+
+    /**
+     * Returns the lowest count in the top-k, or 0 while fewer than k items are tracked.
+     */
+    public long minCount() {
+        return size < k ? 0 : heap[0].count;
+    }
+
+    /**
+     * Sets the count of a tracked item, or admits a new item if there is room
+     * or its count beats the lowest count, which is then evicted.
+     *
+     * @return true if the item is in the top-k afterwards
+     */
+    public boolean offer(String item, long count) {
+        Entry entry = index.get(item);
+        if (entry != null) {
+            long old = entry.count;
+            if (count == old) {
+                return true;
+            }
+            version++;
+            entry.count = count;
+            if (count > old) {
+                siftDown(entry.pos);
+            } else {
+                siftUp(entry.pos);
+            }
+            return true;
+        }
+        if (size < k) {
+            version++;
+            entry = new Entry();
+            entry.item = item;
+            entry.count = count;
+            entry.pos = size;
+            heap[size++] = entry;
+            index.put(item, entry);
+            siftUp(entry.pos);
+            return true;
+        }
+        if (count <= heap[0].count) {
+            return false;
+        }
+        version++;
+        // Reuse the evicted entry for the new item.
+        entry = heap[0];
+        index.remove(entry.item);
+        entry.item = item;
+        entry.count = count;
+        index.put(item, entry);
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Stops tracking the item.
+     */
+    public void remove(String item) {
+        Entry entry = index.remove(item);
+        if (entry == null) {
+            return;
+        }
+        version++;
+        int pos = entry.pos;
+        Entry last = heap[--size];
+        heap[size] = null;
+        if (last != entry) {
+            heap[pos] = last;
+            last.pos = pos;
+            siftDown(pos);
+            siftUp(last.pos);
+        }
+    }
+
+    public void clear() {
+        version++;
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        index.clear();
+    }
+
+    /**
+     * Returns the tracked items in no particular order.
+     */
+    public String[] items() {
+        String[] items = new String[size];
+        for (int i = 0; i < size; i++) {
+            items[i] = heap[i].item;
+        }
+        return items;
+    }
+
+    /**
+     * Returns a copy of the tracked items and their counts in no particular order.
+     */
+    public TopTweet[] toArray() {
+        TopTweet[] tweets = new TopTweet[size];
+        for (int i = 0; i < size; i++) {
+            tweets[i] = new TopTweet(heap[i].item, heap[i].count);
+        }
+        return tweets;
+    }
+
+    private void siftUp(int pos) {
+        Entry entry = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (heap[parent].count <= entry.count) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            heap[pos].pos = pos;
+            pos = parent;
+        }
+        heap[pos] = entry;
+        entry.pos = pos;
+    }
+
+    private void siftDown(int pos) {
+        Entry entry = heap[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && heap[right].count < heap[child].count) {
+                child = right;
+            }
+            if (entry.count <= heap[child].count) {
+                break;
+            }
+            heap[pos] = heap[child];
+            heap[pos].pos = pos;
+            pos = child;
+        }
+        heap[pos] = entry;
+        entry.pos = pos;
+    }
+
+    static class Entry implements Serializable {
+        private static final long serialVersionUID = 3326913604386432166L;
+
+        String item;
+        long count;
+        int pos;
+    }
+}
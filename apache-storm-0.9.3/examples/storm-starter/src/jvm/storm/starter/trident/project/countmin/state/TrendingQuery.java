@@ -0,0 +1,43 @@
+package storm.starter.trident.project.countmin.state;
+
+import backtype.storm.tuple.Values;
+import storm.trident.operation.TridentCollector;
+import storm.trident.state.BaseQueryFunction;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Returns the top-k of several dimensions of a KeyedCountMinSketchState at once,
+ * rendered as "dimension: [item: count] ..." one dimension per line. The input is a
+ * space separated list of dimensions, all the dimensions tracked if it is empty.
+ */
+public class TrendingQuery extends BaseQueryFunction<KeyedCountMinSketchState, String> {
+
+    public List<String> batchRetrieve(KeyedCountMinSketchState state, List<TridentTuple> inputs) {
+        List<String> ret = new ArrayList<String>(inputs.size());
+        for (TridentTuple input : inputs) {
+            String args = input.getString(0);
+            List<String> dimensions = args == null || args.trim().isEmpty()
+                    ? state.dimensions()
+                    : Arrays.asList(args.trim().split("\\s+"));
+            StringBuilder trends = new StringBuilder();
+            for (String dimension : dimensions) {
+                CountMinSketchState sketch = state.get(dimension);
+                if (trends.length() > 0) {
+                    trends.append('\n');
+                }
+                // Each top-k is only rendered again when it has changed, see getTopKSnapshot.
+                trends.append(dimension).append(':').append(sketch == null ? "" : sketch.getTopKSnapshot().toString());
+            }
+            ret.add(trends.toString());
+        }
+        return ret;
+    }
+
+    public void execute(TridentTuple tuple, String trends, TridentCollector collector) {
+        collector.emit(new Values(trends));
+    }
+}
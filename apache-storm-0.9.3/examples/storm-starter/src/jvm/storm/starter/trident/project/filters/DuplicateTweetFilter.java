@@ -0,0 +1,42 @@
+package storm.starter.trident.project.filters;
+
+import storm.starter.trident.project.countmin.state.RotatingBloomFilter;
+import storm.trident.operation.BaseFilter;
+import storm.trident.operation.TridentOperationContext;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.Map;
+
+/**
+ * Filters out tweets whose id was already seen within a time window, e.g. the
+ * tweets the stream delivers again after a reconnect, so they are not counted twice.
+ * The ids are kept in a RotatingBloomFilter, whose memory does not grow with the
+ * stream. A small fraction of new tweets, the false positive rate times the
+ * number of intervals, is dropped as well.
+ */
+public class DuplicateTweetFilter extends BaseFilter {
+
+    private final int numSlots;
+    private final long slotLengthMs;
+    private final long expectedTweetsPerSlot;
+    private final double falsePositiveRate;
+    private transient RotatingBloomFilter seen;
+
+    public DuplicateTweetFilter(int numSlots, long slotLengthMs, long expectedTweetsPerSlot, double falsePositiveRate) {
+        this.numSlots = numSlots;
+        this.slotLengthMs = slotLengthMs;
+        this.expectedTweetsPerSlot = expectedTweetsPerSlot;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @Override
+    public void prepare(Map conf, TridentOperationContext context) {
+        // Built here so the window starts when the topology runs, not when it is submitted.
+        seen = new RotatingBloomFilter(numSlots, slotLengthMs, expectedTweetsPerSlot, falsePositiveRate);
+    }
+
+    @Override
+    public boolean isKeep(TridentTuple tuple) {
+        return !seen.addAndCheck(tuple.getLong(0));
+    }
+}
@@ -0,0 +1,203 @@
+package storm.starter.trident.project.filters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Named lists of words to drop, e.g. stop words and a blocklist of spam hashtags,
+ * that can be edited while the topology runs.
+ *
+ * The lists are read from a file, or from every *.txt file of a directory, each
+ * file being one list named after it. A background thread polls the files and,
+ * when one changed, builds new immutable StopWordSets and swaps them in with a
+ * single reference write, so lookups never wait and always see one consistent
+ * version of every list. A file that cannot be read keeps the previous lists.
+ *
+ * A list should be replaced by writing a new file and renaming it over the old
+ * one, otherwise a poll may read it half written.
+ */
+public class StopWordDictionary implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(StopWordDictionary.class);
+
+    private static final String SUFFIX = ".txt";
+
+    private static final FileFilter LIST_FILES = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return file.isFile() && !file.isHidden() && file.getName().endsWith(SUFFIX);
+        }
+    };
+
+    /**
+     * One version of all the lists, never modified once published.
+     */
+    private static final class Lists {
+        final long signature;
+        final String[] names;
+        final StopWordSet[] sets;
+
+        Lists(long signature, String[] names, StopWordSet[] sets) {
+            this.signature = signature;
+            this.names = names;
+            this.sets = sets;
+        }
+    }
+
+    private final File path;
+    private final AtomicReference<Lists> lists = new AtomicReference<Lists>();
+    private ScheduledExecutorService watcher;
+
+    /**
+     * A dictionary of a single list that never changes.
+     */
+    public StopWordDictionary(String name, StopWordSet words) {
+        this.path = null;
+        this.lists.set(new Lists(0, new String[]{ name }, new StopWordSet[]{ words }));
+    }
+
+    /**
+     * A dictionary of the lists in the given file or directory, read once here.
+     *
+     * @throws IOException if the lists cannot be read
+     */
+    public StopWordDictionary(File path) throws IOException {
+        this.path = path;
+        if (!reload()) {
+            throw new IOException("No word lists found at " + path);
+        }
+    }
+
+    /**
+     * Returns the name of the first list holding the word in any case, or null
+     * if none does.
+     */
+    public String match(CharSequence word) {
+        return match(word, 0, word.length());
+    }
+
+    public String match(CharSequence word, int start, int end) {
+        Lists current = lists.get();
+        for (int i = 0; i < current.sets.length; i++) {
+            if (current.sets[i].contains(word, start, end)) {
+                return current.names[i];
+            }
+        }
+        return null;
+    }
+
+    public List<String> listNames() {
+        return Collections.unmodifiableList(Arrays.asList(lists.get().names));
+    }
+
+    /**
+     * Reads the lists again if any of their files was added, removed or modified
+     * since the last read, and swaps them in.
+     *
+     * @return true if new lists were swapped in
+     * @throws IOException if a list cannot be read, the previous lists are kept
+     */
+    synchronized boolean reload() throws IOException {
+        if (path == null) {
+            return false;
+        }
+        File[] files = listFiles();
+        long signature = signature(files);
+        Lists current = lists.get();
+        if (current != null && current.signature == signature) {
+            return false;
+        }
+        if (files.length == 0) {
+            return false;
+        }
+        String[] names = new String[files.length];
+        StopWordSet[] sets = new StopWordSet[files.length];
+        for (int i = 0; i < files.length; i++) {
+            String name = files[i].getName();
+            names[i] = name.endsWith(SUFFIX) ? name.substring(0, name.length() - SUFFIX.length()) : name;
+            sets[i] = StopWordSet.fromFile(files[i]);
+        }
+        lists.set(new Lists(signature, names, sets));
+        return true;
+    }
+
+    private File[] listFiles() {
+        if (!path.isDirectory()) {
+            return path.isFile() ? new File[]{ path } : new File[0];
+        }
+        File[] files = path.listFiles(LIST_FILES);
+        if (files == null) {
+            return new File[0];
+        }
+        // Earlier lists win a match, keep their order stable across reloads.
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static long signature(File[] files) {
+        long signature = 1;
+        for (File file : files) {
+            signature = 31 * signature + file.getName().hashCode();
+            signature = 31 * signature + file.lastModified();
+            signature = 31 * signature + file.length();
+        }
+        return signature;
+    }
+
+    /**
+     * Starts polling the files for changes on a daemon thread. Does nothing for
+     * a dictionary that is not read from files.
+     */
+    public synchronized void watch(long pollIntervalMs) {
+        if (path == null || watcher != null) {
+            return;
+        }
+        watcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "stop-word-watcher " + path);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        watcher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (reload()) {
+                        log.info("Reloaded word lists {} from {}", listNames(), path);
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not reload the word lists of " + path + ", keeping the previous ones", e);
+                } catch (RuntimeException e) {
+                    // An exception would cancel the polling for good.
+                    log.warn("Could not reload the word lists of " + path + ", keeping the previous ones", e);
+                }
+            }
+        }, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops polling the files.
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+            watcher = null;
+        }
+    }
+}
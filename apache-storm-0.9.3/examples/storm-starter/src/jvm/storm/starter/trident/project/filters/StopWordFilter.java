@@ -0,0 +1,120 @@
+package storm.starter.trident.project.filters;
+
+import backtype.storm.metric.api.MultiCountMetric;
+import storm.trident.operation.BaseFilter;
+import storm.trident.operation.TridentOperationContext;
+import storm.trident.tuple.TridentTuple;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Filters out the stop words listed in a classpath resource, in any case.
+ * Unlike a bloom filter it never drops a word that is not on the list, and
+ * testing a word allocates nothing.
+ *
+ * Built with watching, the words come instead from the lists of a file or
+ * directory that is polled for changes, see StopWordDictionary, so stop words
+ * and spam hashtags can be added without redeploying the topology.
+ *
+ * The words dropped are counted per list in the "stop_word_hits" metric, or
+ * the one set with setHitsMetric.
+ */
+public class StopWordFilter extends BaseFilter {
+
+    public static final String DEFAULT_RESOURCE = "resources/stopwords.txt";
+    public static final String HITS_METRIC = "stop_word_hits";
+    private static final int METRIC_BUCKET_SECS = 60;
+
+    private final String resource;
+    private final String path;
+    private final long pollIntervalMs;
+    private String hitsMetric = HITS_METRIC;
+    private transient StopWordDictionary dictionary;
+    private transient MultiCountMetric hits;
+
+    public StopWordFilter() {
+        this(DEFAULT_RESOURCE);
+    }
+
+    public StopWordFilter(String resource) {
+        this(resource, null, 0);
+    }
+
+    private StopWordFilter(String resource, String path, long pollIntervalMs) {
+        this.resource = resource;
+        this.path = path;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    /**
+     * Returns a filter of the lists in a local file or directory, checked for
+     * changes every pollIntervalMs on every worker.
+     */
+    public static StopWordFilter watching(String path, long pollIntervalMs) {
+        if (pollIntervalMs <= 0) {
+            throw new IllegalArgumentException("Poll interval must be positive");
+        }
+        return new StopWordFilter(null, path, pollIntervalMs);
+    }
+
+    /**
+     * Counts the words dropped in the named metric instead of "stop_word_hits".
+     * Operations of one bolt must not register the same metric twice, so each
+     * filter running alongside another needs a name of its own.
+     */
+    public StopWordFilter setHitsMetric(String hitsMetric) {
+        this.hitsMetric = hitsMetric;
+        return this;
+    }
+
+    @Override
+    public void prepare(Map conf, TridentOperationContext context) {
+        try {
+            if (path != null) {
+                dictionary = new StopWordDictionary(new File(path));
+                dictionary.watch(pollIntervalMs);
+            } else {
+                dictionary = new StopWordDictionary(listName(resource), StopWordSet.fromResource(resource));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        hits = context.registerMetric(hitsMetric, new MultiCountMetric(), METRIC_BUCKET_SECS);
+    }
+
+    // resources/stopwords.txt -> stopwords
+    private static String listName(String resource) {
+        String name = resource.substring(resource.lastIndexOf('/') + 1);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    @Override
+    public boolean isKeep(TridentTuple tuple) {
+        String word = tuple.getString(0);
+        return !isStopWord(word, 0, word.length());
+    }
+
+    /**
+     * Tells whether the chars of word from start to end are listed, counting the
+     * hit if so. For operations that scan their own tokens; the filter must be
+     * prepared first.
+     */
+    public boolean isStopWord(CharSequence word, int start, int end) {
+        String list = dictionary.match(word, start, end);
+        if (list == null) {
+            return false;
+        }
+        hits.scope(list).incr();
+        return true;
+    }
+
+    @Override
+    public void cleanup() {
+        if (dictionary != null) {
+            dictionary.close();
+        }
+    }
+}
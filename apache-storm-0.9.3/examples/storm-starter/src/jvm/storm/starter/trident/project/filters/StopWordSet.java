@@ -0,0 +1,161 @@
+package storm.starter.trident.project.filters;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable set of stop words, matched exactly and case-insensitively against
+ * any CharSequence, or a range of one, without allocating.
+ *
+ * The words are kept lowercased in an open-addressing table with linear probing,
+ * sized to a power of two at most half full. A lookup hashes the lowercased chars
+ * of the candidate and compares them against the words of its probe sequence.
+ */
+public final class StopWordSet {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Lowercased words, slots[i] is null for an empty slot.
+    private final char[][] slots;
+    private final int mask;
+    private final int size;
+    private final int maxLength;
+
+    public StopWordSet(Collection<String> words) {
+        Set<String> distinct = new LinkedHashSet<String>();
+        int longest = 0;
+        for (String word : words) {
+            String lower = toLowerCase(word);
+            if (lower.length() > 0 && distinct.add(lower)) {
+                longest = Math.max(longest, lower.length());
+            }
+        }
+        int capacity = 4;
+        while (capacity < distinct.size() * 2) {
+            capacity <<= 1;
+        }
+        this.slots = new char[capacity][];
+        this.mask = capacity - 1;
+        this.size = distinct.size();
+        this.maxLength = longest;
+        for (String word : distinct) {
+            int i = hash(word, 0, word.length()) & mask;
+            while (slots[i] != null) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = word.toCharArray();
+        }
+    }
+
+    /**
+     * Reads the words of a classpath resource, one per line. Blank lines and
+     * comments, lines of a # followed by a space or nothing, are skipped, so that
+     * hashtags can be listed too.
+     *
+     * @throws IOException if the resource is missing or cannot be read
+     */
+    public static StopWordSet fromResource(String resource) throws IOException {
+        InputStream in = StopWordSet.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Stop word resource " + resource + " not found");
+        }
+        return read(in);
+    }
+
+    /**
+     * Reads the words of a file, in the format of fromResource.
+     */
+    public static StopWordSet fromFile(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    private static StopWordSet read(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+        try {
+            List<String> words = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() > 0 && !isComment(line)) {
+                    words.add(line);
+                }
+            }
+            return new StopWordSet(words);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean isComment(String line) {
+        return line.charAt(0) == '#' && (line.length() == 1 || Character.isWhitespace(line.charAt(1)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(CharSequence word) {
+        return contains(word, 0, word.length());
+    }
+
+    /**
+     * Tells whether the chars of word from start, inclusive, to end, exclusive,
+     * are a stop word in any case.
+     */
+    public boolean contains(CharSequence word, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > maxLength) {
+            return false;
+        }
+        int i = hash(word, start, end) & mask;
+        char[] candidate;
+        while ((candidate = slots[i]) != null) {
+            if (matches(candidate, word, start, length)) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private static boolean matches(char[] candidate, CharSequence word, int start, int length) {
+        if (candidate.length != length) {
+            return false;
+        }
+        for (int j = 0; j < length; j++) {
+            if (candidate[j] != Character.toLowerCase(word.charAt(start + j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Char by char like the lookups, String.toLowerCase would depend on the default locale.
+    private static String toLowerCase(String word) {
+        char[] chars = word.trim().toCharArray();
+        for (int j = 0; j < chars.length; j++) {
+            chars[j] = Character.toLowerCase(chars[j]);
+        }
+        return new String(chars);
+    }
+
+    private static int hash(CharSequence word, int start, int end) {
+        int h = 0;
+        for (int j = start; j < end; j++) {
+            h = 31 * h + Character.toLowerCase(word.charAt(j));
+        }
+        // Spreads the bits of short words over the whole table.
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,9 +1,8 @@
 package storm.starter.trident.project.functions;
 
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import storm.starter.trident.project.countmin.state.MurmurHash;
 
 /**
  * @author Enno Shioji (enno.shioji@peerindex.com)
@@ -17,6 +16,8 @@ public class Content {
 
     private String contentName;
     private String contentType;
+    // Identity of the type and name, kept up to date by their setters, 0 until one is set.
+    private long id;
 
     public Content(long tweetId, long userId, long createdAtMs) {
         this.tweetId = tweetId;
@@ -24,9 +25,41 @@ public class Content {
         this.createdAtMs = createdAtMs;
     }
 
+    public Content(long tweetId, long userId, long createdAtMs, String contentType, String contentName) {
+        this(tweetId, userId, createdAtMs, contentType, contentName, idOf(contentType, contentName));
+    }
+
+    /**
+     * For ContentExtracter, which computes idOf(contentType, contentName) anyway to
+     * drop the contents a tweet repeats before building them. The id is not checked.
+     */
+    Content(long tweetId, long userId, long createdAtMs, String contentType, String contentName, long id) {
+        this(tweetId, userId, createdAtMs);
+        this.contentType = contentType;
+        this.contentName = contentName;
+        this.id = id;
+    }
+
+    /**
+     * 64 bit identity of a content type and name, a MurmurHash3 of the name seeded
+     * with one of the type. Cheap enough to compute for every entity of a tweet,
+     * and wide enough that distinct contents practically never collide.
+     */
+    public static long idOf(String contentType, String contentName) {
+        // A null is hashed as "null", as the string concatenation of the old MD5 id did.
+        long typeHash = MurmurHash.hash3_x64_64(String.valueOf(contentType), 0);
+        return MurmurHash.hash3_x64_64(String.valueOf(contentName), (int) (typeHash ^ (typeHash >>> 32)));
+    }
+
+    /**
+     * Identity of the content type and name, computed once when they are set.
+     */
+    public long getId() {
+        return id;
+    }
+
     public String getContentId(){
-        HashFunction md5 = Hashing.md5();
-        return md5.hashString(contentType + contentName).toString();
+        return Long.toHexString(id);
     }
 
     public String getContentName() {
@@ -35,10 +68,12 @@ public class Content {
 
     public void setContentName(String contentName) {
         this.contentName = contentName;
+        this.id = idOf(contentType, contentName);
     }
 
     public void setContentType(String contentType) {
         this.contentType = contentType;
+        this.id = idOf(contentType, contentName);
     }
 
     public long getTweetId() {
@@ -7,25 +7,52 @@ import twitter4j.Status;
 import twitter4j.URLEntity;
 import twitter4j.UserMentionEntity;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
 
 
 /**
+ * Lists the distinct contents of a tweet: the accounts and statuses it mentions,
+ * retweets or replies to, its urls, hashtags, source and place. Contents are told
+ * apart by their 64 bit Content id, in a set reused from tweet to tweet, so an
+ * extracter is meant for one thread.
+ *
  * @author Enno Shioji (enno.shioji@peerindex.com)
  */
 public class ContentExtracter {
     private static final Logger log = LoggerFactory.getLogger(ContentExtracter.class);
 
+    private final LongHashSet seen = new LongHashSet(32);
+
+    // Fields shared by all the contents of the tweet being extracted.
+    private long tweetId;
+    private long userId;
+    private long createdAtMs;
+
+    /**
+     * Returns the distinct contents of the tweet in a new set.
+     */
     public Set<Content> extract(Status tweet) {
-        Comparator<Content> byId = new Comparator<Content>() {
-            @Override
-            public int compare(Content content1, Content content2) {
-                return content1.getContentId().compareTo(content2.getContentId());
-            }
-        };
-        Set<Content> contents = new TreeSet<Content>(byId);
+        List<Content> contents = new ArrayList<Content>();
+        extract(tweet, contents);
+        return new LinkedHashSet<Content>(contents);
+    }
+
+    /**
+     * Appends the distinct contents of the tweet to the given list, which may be
+     * reused from tweet to tweet. Of contents with the same type and name only
+     * the first is kept.
+     *
+     * @return the number of contents appended
+     */
+    public int extract(Status tweet, List<Content> contents) {
+        int before = contents.size();
+        seen.clear();
+        tweetId = tweet.getId();
+        userId = tweet.getUser().getId();
+        createdAtMs = tweet.getCreatedAt().getTime();
 
         // mentioned accounts
         if (tweet.getUserMentionEntities() != null) {
@@ -35,121 +62,82 @@ public class ContentExtracter {
         // retweeted account
         Status retweeted = tweet.getRetweetedStatus();
         if (retweeted != null) {
-            extractRetweetedAccounts(tweet, contents, retweeted);
-            extractRetweetedStatuses(tweet, contents, retweeted);
+            extractRetweetedAccounts(contents, retweeted);
+            extractRetweetedStatuses(contents, retweeted);
         }
 
         extractRepliedAccount(tweet, contents);
         extractRepliedToStatus(tweet, contents);
 
-        extractUrls(tweet, contents);
+        if (tweet.getURLEntities() != null) {
+            extractUrls(tweet, contents);
+        }
 
         if (tweet.getHashtagEntities() != null) {
             extractHashtags(tweet, contents);
         }
 
         if (tweet.getSource() != null) {
-            Content source = newBase(tweet);
-            String sourceNormalized = tweet.getSource();
-            source.setContentName(sourceNormalized);
-            source.setContentType("source");
-            contents.add(source);
-        }
-
-        if (tweet.getPlace() != null) {
-            Content place = newBase(tweet);
-            place.setContentName(tweet.getPlace().getCountryCode());
-            place.setContentType("place_country-code");
-            contents.add(place);
+            add("source", tweet.getSource(), contents);
         }
 
         if (tweet.getPlace() != null) {
-            Content place = newBase(tweet);
-            String placeNormalized = tweet.getPlace().getFullName();
-            place.setContentName(placeNormalized);
-            place.setContentType("place_fullname");
-            contents.add(place);
+            add("place_country-code", tweet.getPlace().getCountryCode(), contents);
+            add("place_fullname", tweet.getPlace().getFullName(), contents);
         }
 
-        return contents;
+        return contents.size() - before;
     }
 
-    private void extractUrls(Status tweet, Set<Content> contents) {
+    private void extractUrls(Status tweet, List<Content> contents) {
         for (URLEntity urlEntity : tweet.getURLEntities()) {
             String url = urlEntity.getExpandedURL();
             url = url == null ? urlEntity.getURL() : url;
-            Content shareUrl = newBase(tweet);
-            shareUrl.setContentName(url);
-            shareUrl.setContentType("url");
-            contents.add(shareUrl);
+            add("url", url, contents);
         }
     }
 
-
-    private void extractRepliedToStatus(Status tweet, Set<Content> contents) {
+    private void extractRepliedToStatus(Status tweet, List<Content> contents) {
         long statusId = tweet.getInReplyToStatusId();
         if (statusId > 0) {
-            Content replyStatus = newBase(tweet);
-            replyStatus.setContentName(String.valueOf(statusId));
-            replyStatus.setContentType("reply_to_status");
-            contents.add(replyStatus);
+            add("reply_to_status", String.valueOf(statusId), contents);
         }
     }
 
-    private void extractRepliedAccount(Status tweet, Set<Content> contents) {
+    private void extractRepliedAccount(Status tweet, List<Content> contents) {
         long accountId = tweet.getInReplyToUserId();
         if (accountId > 0) {
-            Content replyStatus = newBase(tweet);
-            replyStatus.setContentName(String.valueOf(accountId));
-            replyStatus.setContentType("reply_to_account");
-            contents.add(replyStatus);
+            add("reply_to_account", String.valueOf(accountId), contents);
         }
     }
 
-    private void extractHashtags(Status tweet, Set<Content> contents) {
+    private void extractHashtags(Status tweet, List<Content> contents) {
         for (HashtagEntity entity : tweet.getHashtagEntities()) {
-            Content hashtag = newBase(tweet);
             String hashtag_normalized = entity.getText().toLowerCase();
-            hashtag.setContentName(hashtag_normalized);
-            hashtag.setContentType("hashtag");
-            contents.add(hashtag);
+            add("hashtag", hashtag_normalized, contents);
         }
     }
 
-    private void extractRetweetedAccounts(Status tweet, Set<Content> contents, Status retweeted) {
-        if (retweeted != null) {
-            Content retweetedUser = newBase(tweet);
-            retweetedUser.setContentName(String.valueOf(retweeted.getUser().getId()));
-            retweetedUser.setContentType("account_retweeted");
-            contents.add(retweetedUser);
-        }
+    private void extractRetweetedAccounts(List<Content> contents, Status retweeted) {
+        add("account_retweeted", String.valueOf(retweeted.getUser().getId()), contents);
     }
 
-    private void extractRetweetedStatuses(Status tweet, Set<Content> contents, Status retweeted) {
-        if (retweeted != null) {
-            Content retweetedStatus = newBase(tweet);
-            retweetedStatus.setContentName(String.valueOf(retweeted.getId()));
-            retweetedStatus.setContentType("status_retweeted");
-            contents.add(retweetedStatus);
-        }
+    private void extractRetweetedStatuses(List<Content> contents, Status retweeted) {
+        add("status_retweeted", String.valueOf(retweeted.getId()), contents);
     }
 
-    private void extractMentionedAccounts(Status tweet, Set<Content> contents) {
+    private void extractMentionedAccounts(Status tweet, List<Content> contents) {
         for (UserMentionEntity entity : tweet.getUserMentionEntities()) {
-            Content mentionedUser = newBase(tweet);
-            mentionedUser.setContentName(String.valueOf(entity.getId()));
-            mentionedUser.setContentType("account_mentioned");
-            contents.add(mentionedUser);
+            add("account_mentioned", String.valueOf(entity.getId()), contents);
         }
     }
 
-
-    private Content newBase(Status tweet) {
-        return new Content(
-                tweet.getId(),
-                tweet.getUser().getId(),
-                tweet.getCreatedAt().getTime()
-        );
+    // Only builds a Content for a type and name not seen in this tweet yet.
+    private void add(String contentType, String contentName, List<Content> contents) {
+        long id = Content.idOf(contentType, contentName);
+        if (seen.add(id)) {
+            contents.add(new Content(tweetId, userId, createdAtMs, contentType, contentName, id));
+        }
     }
 
 }
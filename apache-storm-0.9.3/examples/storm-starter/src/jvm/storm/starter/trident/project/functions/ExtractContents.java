@@ -0,0 +1,34 @@
+package storm.starter.trident.project.functions;
+
+import backtype.storm.tuple.Values;
+import storm.trident.operation.BaseFunction;
+import storm.trident.operation.TridentCollector;
+import storm.trident.tuple.TridentTuple;
+import twitter4j.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Emits a (contentType, contentName) tuple for every distinct content of a tweet,
+ * e.g. ("hashtag", "tbt") or ("url", "http://..."), see ContentExtracter.
+ */
+public class ExtractContents extends BaseFunction {
+
+    private transient ContentExtracter extracter;
+    private transient List<Content> contents;
+
+    @Override
+    public void execute(TridentTuple tuple, TridentCollector collector) {
+        if (extracter == null) {
+            extracter = new ContentExtracter();
+            contents = new ArrayList<Content>();
+        }
+        contents.clear();
+        extracter.extract((Status) tuple.get(0), contents);
+        for (int i = 0; i < contents.size(); i++) {
+            Content content = contents.get(i);
+            collector.emit(new Values(content.getContentType(), content.getContentName()));
+        }
+    }
+}
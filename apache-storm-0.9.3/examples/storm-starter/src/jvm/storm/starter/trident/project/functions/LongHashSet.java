@@ -0,0 +1,101 @@
+package storm.starter.trident.project.functions;
+
+import java.util.Arrays;
+
+/**
+ * Set of longs in an open-addressing table with linear probing, for deduplicating
+ * the contents of one tweet after another. Clearing keeps the table, so a set
+ * reused across tweets stops allocating once it has grown to the largest tweet.
+ */
+class LongHashSet {
+
+    private static final long EMPTY = 0;
+
+    private long[] slots;
+    private int size;
+    // EMPTY marks a free slot, so the key 0 is tracked on its own.
+    private boolean hasEmptyKey;
+
+    LongHashSet(int expectedSize) {
+        int capacity = 8;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        slots = new long[capacity];
+    }
+
+    /**
+     * Adds the key, returns false if it was in the set already.
+     */
+    boolean add(long key) {
+        if (key == EMPTY) {
+            if (hasEmptyKey) {
+                return false;
+            }
+            hasEmptyKey = true;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int i = mix(key) & mask;
+        long slot;
+        while ((slot = slots[i]) != EMPTY) {
+            if (slot == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = key;
+        if (++size * 2 > slots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey;
+        }
+        int mask = slots.length - 1;
+        int i = mix(key) & mask;
+        long slot;
+        while ((slot = slots[i]) != EMPTY) {
+            if (slot == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return hasEmptyKey ? size + 1 : size;
+    }
+
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(slots, EMPTY);
+            size = 0;
+        }
+        hasEmptyKey = false;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 1;
+        for (long key : old) {
+            if (key != EMPTY) {
+                int i = mix(key) & mask;
+                while (slots[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = key;
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        // The keys are hashes already, fold the high bits into the index.
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,143 @@
+package storm.starter.trident.project.functions;
+
+import backtype.storm.tuple.Values;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import storm.trident.operation.BaseFunction;
+import storm.trident.operation.TridentCollector;
+import storm.trident.operation.TridentOperationContext;
+import storm.trident.tuple.TridentTuple;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pulls a few fields out of the raw JSON of a tweet, as emitted by
+ * TwitterSampleSpout.withRawJson(), with Jackson's streaming parser.
+ *
+ * The fields are given as paths from the root of the message, e.g. "text", "id"
+ * and "user.screen_name", and emitted in that order: strings as String, integers
+ * as Long, decimals as Double, booleans as Boolean. Every other value is skipped
+ * without being built, and parsing stops as soon as all the fields were found.
+ *
+ * Messages missing any of the fields, e.g. deletion notices, emit nothing, and
+ * so do those where a field is null, an object or an array.
+ */
+public class ParseRawTweet extends BaseFunction {
+    private static final Logger log = LoggerFactory.getLogger(ParseRawTweet.class);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * A step of the paths: the index of the field it ends, if any, and the
+     * steps below it.
+     */
+    private static final class Node {
+        int index = -1;
+        final Map<String, Node> children = new HashMap<String, Node>();
+    }
+
+    private final String[] paths;
+    private transient JsonFactory factory;
+    private transient Node root;
+
+    public ParseRawTweet(String... paths) {
+        if (paths.length == 0) {
+            throw new IllegalArgumentException("At least one field is needed");
+        }
+        this.paths = paths.clone();
+    }
+
+    @Override
+    public void prepare(Map conf, TridentOperationContext context) {
+        factory = new JsonFactory();
+        root = new Node();
+        for (int i = 0; i < paths.length; i++) {
+            Node node = root;
+            for (String name : paths[i].split("\\.")) {
+                if (node.index >= 0) {
+                    throw new IllegalArgumentException("Field " + paths[i] + " is inside another requested field");
+                }
+                Node child = node.children.get(name);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(name, child);
+                }
+                node = child;
+            }
+            if (node.index >= 0 || !node.children.isEmpty()) {
+                throw new IllegalArgumentException("Field " + paths[i] + " is requested twice or holds another requested field");
+            }
+            node.index = i;
+        }
+    }
+
+    @Override
+    public void execute(TridentTuple tuple, TridentCollector collector) {
+        byte[] rawJson = tuple.getBinary(0);
+        Object[] values = new Object[paths.length];
+        try {
+            JsonParser parser = factory.createParser(rawJson);
+            try {
+                if (parser.nextToken() == JsonToken.START_OBJECT
+                        && readObject(parser, root, values, 0) == paths.length) {
+                    collector.emit(new Values(values));
+                }
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            log.warn("Invalid tweet json -> " + new String(rawJson, UTF_8), e);
+        }
+    }
+
+    /**
+     * Reads the object the parser is at up to its end, or until every field was
+     * found. Returns the number of fields found so far.
+     */
+    private int readObject(JsonParser parser, Node node, Object[] values, int found) throws IOException {
+        while (found < values.length && parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.children.get(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.index >= 0) {
+                // A null, an object or an array leaves the field missing.
+                Object value = readValue(parser, token);
+                if (value != null) {
+                    values[child.index] = value;
+                    found++;
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                found = readObject(parser, child, values, found);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return found;
+    }
+
+    private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                // null, or an object or array, which are not built.
+                parser.skipChildren();
+                return null;
+        }
+    }
+}
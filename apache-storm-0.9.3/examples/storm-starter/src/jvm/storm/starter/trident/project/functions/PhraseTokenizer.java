@@ -0,0 +1,147 @@
+package storm.starter.trident.project.functions;
+
+import backtype.storm.tuple.Values;
+import storm.starter.trident.project.filters.StopWordFilter;
+import storm.trident.operation.BaseFunction;
+import storm.trident.operation.TridentCollector;
+import storm.trident.operation.TridentOperationContext;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.Map;
+
+/**
+ * Turns the text of a tweet into its phrases, the runs of minWords to maxWords
+ * consecutive words, lowercased and joined by single spaces, one tuple each.
+ * Counted like the words of TweetTokenizer they show the trends that are
+ * phrases, e.g. "world cup final", which single words miss.
+ *
+ * A phrase never spans a boundary. Stop words, mentions, urls and tokens
+ * without a letter or digit are boundaries, and so is punctuation around a
+ * word, e.g. the comma of "rain, snow". Punctuation is trimmed from the words
+ * kept, hashtags keep their #.
+ *
+ * The words of the current run are collected in a reused buffer and phrases
+ * are cut from it, so the only allocations are the phrases emitted.
+ */
+public class PhraseTokenizer extends BaseFunction {
+
+    public static final int DEFAULT_MIN_WORDS = 2;
+    public static final int DEFAULT_MAX_WORDS = 3;
+
+    private final StopWordFilter stopWords;
+    private final int minWords;
+    private final int maxWords;
+    // The lowercase words of the current run separated by single spaces.
+    private transient char[] run;
+    private transient int runLength;
+    // Offsets in run of its last maxWords words, by word number modulo maxWords.
+    private transient int[] wordStarts;
+    private transient int runWords;
+
+    /**
+     * Emits the bigrams and trigrams of the text.
+     */
+    public PhraseTokenizer(StopWordFilter stopWords) {
+        this(stopWords, DEFAULT_MIN_WORDS, DEFAULT_MAX_WORDS);
+    }
+
+    public PhraseTokenizer(StopWordFilter stopWords, int minWords, int maxWords) {
+        if (minWords < 2 || maxWords < minWords) {
+            throw new IllegalArgumentException("Phrases need 2 words or more, and maxWords at least minWords");
+        }
+        this.stopWords = stopWords;
+        this.minWords = minWords;
+        this.maxWords = maxWords;
+    }
+
+    @Override
+    public void prepare(Map conf, TridentOperationContext context) {
+        stopWords.prepare(conf, context);
+        run = new char[256];
+        wordStarts = new int[maxWords];
+    }
+
+    @Override
+    public void execute(TridentTuple tuple, TridentCollector collector) {
+        // Expects the field text.
+        tokenize(tuple.getString(0), collector);
+    }
+
+    void tokenize(CharSequence text, TridentCollector collector) {
+        endRun();
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            boolean boundary = false;
+            while (end < length) {
+                char c = text.charAt(end);
+                if (Character.isWhitespace(c)) {
+                    break;
+                }
+                // Mentions, and urls by their "://".
+                boundary |= c == '@' || (c == ':' && end + 2 < length
+                        && text.charAt(end + 1) == '/' && text.charAt(end + 2) == '/');
+                end++;
+            }
+            int wordStart = start;
+            while (wordStart < end && !isWordStart(text.charAt(wordStart))) {
+                wordStart++;
+            }
+            int wordEnd = end;
+            while (wordEnd > wordStart && !Character.isLetterOrDigit(text.charAt(wordEnd - 1))) {
+                wordEnd--;
+            }
+            boolean word = !boundary && wordEnd > wordStart && !stopWords.isStopWord(text, wordStart, wordEnd);
+            if (wordStart > start || !word) {
+                endRun();
+            }
+            if (word) {
+                addWord(text, wordStart, wordEnd, collector);
+            }
+            if (wordEnd < end) {
+                endRun();
+            }
+            start = end;
+        }
+    }
+
+    private static boolean isWordStart(char c) {
+        return c == '#' || Character.isLetterOrDigit(c);
+    }
+
+    private void addWord(CharSequence text, int start, int end, TridentCollector collector) {
+        int needed = runLength + 1 + end - start;
+        if (run.length < needed) {
+            char[] grown = new char[Math.max(needed, run.length * 2)];
+            System.arraycopy(run, 0, grown, 0, runLength);
+            run = grown;
+        }
+        if (runWords > 0) {
+            run[runLength++] = ' ';
+        }
+        wordStarts[runWords % maxWords] = runLength;
+        for (int i = start; i < end; i++) {
+            run[runLength++] = Character.toLowerCase(text.charAt(i));
+        }
+        runWords++;
+        // The phrases ending with this word.
+        for (int n = minWords; n <= maxWords && n <= runWords; n++) {
+            int phraseStart = wordStarts[(runWords - n) % maxWords];
+            collector.emit(new Values(new String(run, phraseStart, runLength - phraseStart)));
+        }
+    }
+
+    private void endRun() {
+        runLength = 0;
+        runWords = 0;
+    }
+
+    @Override
+    public void cleanup() {
+        stopWords.cleanup();
+    }
+}
@@ -0,0 +1,92 @@
+package storm.starter.trident.project.functions;
+
+import backtype.storm.tuple.Values;
+import storm.starter.trident.project.filters.StopWordFilter;
+import storm.trident.operation.BaseFunction;
+import storm.trident.operation.TridentCollector;
+import storm.trident.operation.TridentOperationContext;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.Map;
+
+/**
+ * Turns the text and user of a tweet into the lowercase words to count, in one
+ * pass and one operation. It does the work of SentenceBuilder, Split,
+ * LowerCaseFunction, FilterNull and the stop word filter:
+ *
+ * The sentence "user: text" is split on whitespace. Words of less than 4 chars
+ * are dropped, so are those of 4 chars holding a # or an @, and the stop words.
+ * The remaining words are emitted lowercased, one tuple each.
+ *
+ * The sentence is assembled in a reused buffer and words are tested in place,
+ * so the only allocations are the words emitted.
+ */
+public class TweetTokenizer extends BaseFunction {
+
+    static final int MIN_LENGTH = 4;
+    static final int MIN_TAG_LENGTH = 5;
+
+    private final StopWordFilter stopWords;
+    private transient StringBuilder sentence;
+    private transient char[] word;
+
+    public TweetTokenizer(StopWordFilter stopWords) {
+        this.stopWords = stopWords;
+    }
+
+    @Override
+    public void prepare(Map conf, TridentOperationContext context) {
+        stopWords.prepare(conf, context);
+        sentence = new StringBuilder(256);
+        word = new char[64];
+    }
+
+    @Override
+    public void execute(TridentTuple tuple, TridentCollector collector) {
+        // Expects the fields text and user.
+        sentence.setLength(0);
+        sentence.append(tuple.getString(1)).append(": ").append(tuple.getString(0));
+        tokenize(sentence, collector);
+    }
+
+    void tokenize(CharSequence text, TridentCollector collector) {
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            boolean tag = false;
+            while (end < length) {
+                char c = text.charAt(end);
+                if (Character.isWhitespace(c)) {
+                    break;
+                }
+                tag |= c == '#' || c == '@';
+                end++;
+            }
+            int wordLength = end - start;
+            if (wordLength >= (tag ? MIN_TAG_LENGTH : MIN_LENGTH) && !stopWords.isStopWord(text, start, end)) {
+                collector.emit(new Values(toLowerCase(text, start, end)));
+            }
+            start = end;
+        }
+    }
+
+    private String toLowerCase(CharSequence text, int start, int end) {
+        int wordLength = end - start;
+        if (word.length < wordLength) {
+            word = new char[Math.max(wordLength, word.length * 2)];
+        }
+        for (int i = 0; i < wordLength; i++) {
+            word[i] = Character.toLowerCase(text.charAt(start + i));
+        }
+        return new String(word, 0, wordLength);
+    }
+
+    @Override
+    public void cleanup() {
+        stopWords.cleanup();
+    }
+}
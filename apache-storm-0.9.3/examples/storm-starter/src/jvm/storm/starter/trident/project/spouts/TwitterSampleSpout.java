@@ -29,6 +29,7 @@ import twitter4j.*;
 import twitter4j.auth.AccessToken;
 import twitter4j.conf.ConfigurationBuilder;
 
+import java.nio.charset.Charset;
 import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -37,9 +38,11 @@ public class TwitterSampleSpout implements IBatchSpout {
 
     // Trident batch size
     private static final int RECORDS_PER_BATCH = 10;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
-    LinkedBlockingQueue<Status> queue = null;
+    LinkedBlockingQueue<Object> queue = null;
     TwitterStream _twitterStream;
+    boolean rawJson;
     String consumerKey;
     String consumerSecret;
     String accessToken;
@@ -62,9 +65,20 @@ public class TwitterSampleSpout implements IBatchSpout {
         // TODO Auto-generated constructor stub
     }
 
+    /**
+     * Emits every message of the stream as its raw UTF-8 JSON bytes instead of a
+     * twitter4j Status, to be parsed by ParseRawTweet. twitter4j then does not
+     * build the object graph of each tweet, and the tuples are about half the size.
+     * Besides tweets, the stream also delivers e.g. deletion and limit notices.
+     */
+    public TwitterSampleSpout withRawJson() {
+        this.rawJson = true;
+        return this;
+    }
+
     @Override
     public void open(Map conf, TopologyContext context) {
-        queue = new LinkedBlockingQueue<Status>(1000);
+        queue = new LinkedBlockingQueue<Object>(1000);
 
         StatusListener listener = new StatusListener() {
 
@@ -98,11 +112,29 @@ public class TwitterSampleSpout implements IBatchSpout {
 
         };
 
+        RawStreamListener rawListener = new RawStreamListener() {
+
+            @Override
+            public void onMessage(String rawString) {
+                queue.offer(rawString.getBytes(UTF_8));
+            }
+
+            @Override
+            public void onException(Exception ex) {
+            }
+
+        };
+
         TwitterStream twitterStream = new TwitterStreamFactory(
-                new ConfigurationBuilder().setJSONStoreEnabled(true).build())
+                new ConfigurationBuilder().setJSONStoreEnabled(!rawJson).build())
                 .getInstance();
+        _twitterStream = twitterStream;
 
-        twitterStream.addListener(listener);
+        if (rawJson) {
+            twitterStream.addListener(rawListener);
+        } else {
+            twitterStream.addListener(listener);
+        }
         twitterStream.setOAuthConsumer(consumerKey, consumerSecret);
         AccessToken token = new AccessToken(accessToken, accessTokenSecret);
         twitterStream.setOAuthAccessToken(token);
@@ -123,7 +155,7 @@ public class TwitterSampleSpout implements IBatchSpout {
         int emitted = 0;
         while (emitted < RECORDS_PER_BATCH) {
 
-            Status ret = queue.poll();
+            Object ret = queue.poll();
             if (ret == null) {
                 Utils.sleep(50);
             } else {
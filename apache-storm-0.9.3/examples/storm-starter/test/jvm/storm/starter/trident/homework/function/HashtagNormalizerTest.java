@@ -0,0 +1,44 @@
+package storm.starter.trident.homework.function;
+
+import org.testng.annotations.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class HashtagNormalizerTest {
+
+  @Test
+  public void shouldReturnTheSameTagWhenAlreadyNormalized() {
+    // given
+    String tag = "storm2015";
+
+    // when
+    String normalized = HashtagNormalizer.normalize(tag);
+
+    // then
+    assertThat(normalized).isSameAs(tag);
+  }
+
+  @Test
+  public void shouldFoldCaseAndDropPunctuation() {
+    assertThat(HashtagNormalizer.normalize("Big_Data!")).isEqualTo("bigdata");
+    assertThat(HashtagNormalizer.normalize("!!")).isEmpty();
+  }
+
+  @Test
+  public void shouldFoldCaseOutsideAscii() {
+    // Uber with an umlaut, and the Greek final sigma folding like the medial one.
+    assertThat(HashtagNormalizer.normalize("\u00dcber")).isEqualTo("\u00fcber");
+    assertThat(HashtagNormalizer.normalize("\u03a3\u03bf\u03c6\u03bf\u03c2")).isEqualTo("\u03c3\u03bf\u03c6\u03bf\u03c3");
+  }
+
+  @Test
+  public void shouldKeepTagsOfOtherScripts() {
+    // given Tokyo in kanji, and namaste whose vowel signs are combining marks
+    String tokyo = "\u6771\u4eac";
+    String namaste = "\u0928\u092e\u0938\u094d\u0924\u0947";
+
+    // then
+    assertThat(HashtagNormalizer.normalize(tokyo)).isSameAs(tokyo);
+    assertThat(HashtagNormalizer.normalize(namaste)).isSameAs(namaste);
+  }
+}
@@ -0,0 +1,141 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+  private static final int ANY_ITEMS = 10000;
+  private static final double ANY_FALSE_POSITIVE_RATE = 0.01;
+
+  @Test
+  public void addedItemsShouldBePresent() {
+    // given
+    BloomFilter filter = BloomFilter.forExpectedItems(ANY_ITEMS, ANY_FALSE_POSITIVE_RATE);
+
+    // when
+    for (long id = 0; id < ANY_ITEMS; id++) {
+      filter.add(id);
+    }
+    filter.add("foo");
+
+    // then
+    for (long id = 0; id < ANY_ITEMS; id++) {
+      assertThat(filter.isPresent(id)).isTrue();
+    }
+    assertThat(filter.isPresent("foo")).isTrue();
+  }
+
+  @Test
+  public void falsePositivesShouldStayNearTheTargetRate() {
+    // given
+    BloomFilter filter = BloomFilter.forExpectedItems(ANY_ITEMS, ANY_FALSE_POSITIVE_RATE);
+    for (long id = 0; id < ANY_ITEMS; id++) {
+      filter.add(id);
+    }
+
+    // when
+    int falsePositives = 0;
+    for (long id = ANY_ITEMS; id < 2 * ANY_ITEMS; id++) {
+      if (filter.isPresent(id)) {
+        falsePositives++;
+      }
+    }
+
+    // then
+    assertThat(falsePositives).isLessThan((int) (2 * ANY_FALSE_POSITIVE_RATE * ANY_ITEMS));
+  }
+
+  @Test
+  public void addAndCheckShouldTellDuplicates() {
+    // given
+    BloomFilter filter = BloomFilter.forExpectedItems(ANY_ITEMS, ANY_FALSE_POSITIVE_RATE);
+
+    // when
+    boolean first = filter.addAndCheck(42L);
+    boolean second = filter.addAndCheck(42L);
+
+    // then
+    assertThat(first).isFalse();
+    assertThat(second).isTrue();
+  }
+
+  @Test
+  public void mergeShouldHoldTheItemsOfBothFilters() {
+    // given
+    BloomFilter first = BloomFilter.forExpectedItems(ANY_ITEMS, ANY_FALSE_POSITIVE_RATE);
+    BloomFilter second = BloomFilter.forExpectedItems(ANY_ITEMS, ANY_FALSE_POSITIVE_RATE);
+    first.add("foo");
+    second.add("bar");
+
+    // when
+    first.merge(second);
+
+    // then
+    assertThat(first.isPresent("foo")).isTrue();
+    assertThat(first.isPresent("bar")).isTrue();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void mergingDifferentSizesShouldThrowIAE() {
+    new BloomFilter(1024, 3).merge(new BloomFilter(2048, 3));
+  }
+
+  @Test
+  public void serializerShouldRoundTrip() throws IOException {
+    // given
+    BloomFilter filter = BloomFilter.forExpectedItems(ANY_ITEMS, ANY_FALSE_POSITIVE_RATE);
+    filter.add("foo");
+    filter.add(42L);
+
+    // when
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    BloomFilter.serializer().serialize(filter, new DataOutputStream(bos));
+    BloomFilter copy = BloomFilter.serializer().deserialize(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+
+    // then
+    assertThat(copy.getHashCount()).isEqualTo(filter.getHashCount());
+    assertThat(copy.bits).isEqualTo(filter.bits);
+    assertThat(copy.isPresent("foo")).isTrue();
+    assertThat(copy.isPresent(42L)).isTrue();
+  }
+
+  @Test
+  public void countingFilterShouldForgetRemovedItems() {
+    // given
+    CountingBloomFilter filter = CountingBloomFilter.forExpectedItems(ANY_ITEMS, ANY_FALSE_POSITIVE_RATE);
+    filter.add("foo");
+    filter.add("bar");
+
+    // when
+    filter.remove("foo");
+
+    // then
+    assertThat(filter.isPresent("foo")).isFalse();
+    assertThat(filter.isPresent("bar")).isTrue();
+  }
+
+  @Test
+  public void countingFilterShouldNotLowerSaturatedCounters() {
+    // given
+    CountingBloomFilter filter = new CountingBloomFilter(64, 1);
+    for (int n = 0; n < 20; n++) {
+      filter.add(42L);
+    }
+
+    // when
+    for (int n = 0; n < 20; n++) {
+      filter.remove(42L);
+    }
+
+    // then
+    assertThat(filter.isPresent(42L)).isTrue();
+  }
+}
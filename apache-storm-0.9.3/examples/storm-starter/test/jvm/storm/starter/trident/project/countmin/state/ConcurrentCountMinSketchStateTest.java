@@ -0,0 +1,102 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ConcurrentCountMinSketchStateTest {
+
+  private static final int ANY_DEPTH = 4;
+  private static final int ANY_WIDTH = 1024;
+  private static final int ANY_SEED = 100;
+  private static final int ANY_K = 3;
+  private static final int THREADS = 4;
+
+  @Test
+  public void concurrentAddsShouldMatchSequentialAdds() throws InterruptedException {
+    // given
+    final ConcurrentCountMinSketchState shared = new ConcurrentCountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    CountMinSketchState sequential = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    for (int t = 0; t < THREADS; t++) {
+      CountMinSketchStateTest.addRandomWords(sequential);
+    }
+
+    // when
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          CountMinSketchStateTest.addRandomWords(shared);
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // then
+    assertThat(Arrays.deepEquals(shared.table.toArray(), sequential.table.toArray())).isTrue();
+    assertThat(shared.size()).isEqualTo(sequential.size());
+    assertThat(shared.getTopKItems()).hasSize(ANY_K);
+  }
+
+  @Test
+  public void candidatesShouldBePrunedToTheTopK() {
+    // given
+    ConcurrentCountMinSketchState state = new ConcurrentCountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+
+    // when
+    for (int i = 1; i <= 100; i++) {
+      state.add("word" + i, i);
+    }
+
+    // then
+    assertThat(state.candidateCount.get()).isLessThanOrEqualTo(ANY_K * ConcurrentCountMinSketchState.CANDIDATE_FACTOR);
+    assertThat(state.getTopKItems()).containsOnly(
+        new TopTweet("word100", 100), new TopTweet("word99", 99), new TopTweet("word98", 98));
+  }
+
+  @Test
+  public void topKOfEqualCountsShouldBeSortedByWord() {
+    // given many more candidates than k, nearly all with the same count
+    ConcurrentCountMinSketchState state = new ConcurrentCountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, 8);
+    for (int i = 0; i < 500; i++) {
+      state.add("word" + i, 1);
+    }
+
+    // when
+    TopTweet[] top = state.getTopKItems();
+
+    // then
+    assertThat(top).hasSize(8);
+    for (int i = 1; i < top.length; i++) {
+      assertThat(TopKSnapshot.BY_DECREASING_COUNT.compare(top[i - 1], top[i])).isLessThan(0);
+    }
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void conservativeUpdateShouldNotBeSupported() {
+    new ConcurrentCountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K).setConservativeUpdate(true);
+  }
+
+  @Test
+  public void sharedFactoryShouldHandOutOneStatePerWorker() {
+    // given
+    CountMinSketchStateFactory factory = new CountMinSketchStateFactory(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K)
+        .setShared(true);
+
+    // when
+    Object first = factory.makeState(null, null, 0, 2);
+    Object second = factory.makeState(null, null, 1, 2);
+    Object other = new CountMinSketchStateFactory(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K).setShared(true)
+        .makeState(null, null, 0, 2);
+
+    // then
+    assertThat(first).isSameAs(second);
+    assertThat(other).isNotSameAs(first);
+  }
+}
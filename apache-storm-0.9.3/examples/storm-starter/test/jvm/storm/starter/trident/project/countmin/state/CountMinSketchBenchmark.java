@@ -0,0 +1,495 @@
+package storm.starter.trident.project.countmin.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * Throughput benchmark for the count-min sketch state.
+ * Not a unit test, run it by hand with a fixed heap, e.g.
+ * java -Xms1g -Xmx1g -cp target/classes:target/test-classes storm.starter.trident.project.countmin.state.CountMinSketchBenchmark
+ */
+public class CountMinSketchBenchmark {
+
+    private static final int SEED = 100;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        benchmarkTableLayouts(150, 100, 2000000);
+        benchmarkTableLayouts(8, 1 << 20, 2000000);
+        benchmarkStateStorage(8, 1 << 22, 1000000);
+        benchmarkTopK(5, 200000);
+        benchmarkTopK(100, 200000);
+        benchmarkTopK(1000, 200000);
+        // The linear scans of the PriorityQueue make 200000 updates take minutes at this size.
+        benchmarkTopK(10000, 20000);
+        benchmarkConservativeUpdate(4, 2048, 1000000);
+        benchmarkConservativeUpdate(4, 1024, 1000000);
+        benchmarkSerialization(150, 100, 1000000, 200);
+        benchmarkSerialization(8, 1 << 20, 1000000, 10);
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            benchmarkSharedUpdates(8, 1 << 16, 2000000, threads);
+        }
+        benchmarkHashing(7, 2048, 5000000);
+        for (int depth : new int[]{4, 16, 150}) {
+            for (int width : new int[]{1 << 10, 1 << 16, 1 << 20}) {
+                // 150 rows of 1M counters would not fit in a reasonable heap.
+                if ((long) depth * width <= 1 << 24) {
+                    benchmarkKernels(depth, width, 2000000);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares the old long[depth][width] layout with the flat heap and off-heap tables.
+     */
+    static void benchmarkTableLayouts(int depth, int width, int updates) {
+        System.out.println("Table layouts, depth " + depth + ", width " + width);
+        int[] buckets = randomBuckets(depth, width, 4096);
+
+        long[][] nested = new long[depth][width];
+        CounterTable heap = CounterTable.allocate(CounterTable.Storage.HEAP, depth, width);
+        CounterTable offHeap = CounterTable.allocate(CounterTable.Storage.OFF_HEAP, depth, width);
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            boolean report = round >= WARMUP_ROUNDS;
+
+            Measurement m = Measurement.start();
+            for (int n = 0; n < updates; n++) {
+                int offset = (n & 4095) * depth;
+                for (int i = 0; i < depth; i++) {
+                    nested[i][buckets[offset + i]] += 1;
+                }
+            }
+            m.stop(report, "long[][]", updates);
+
+            m = Measurement.start();
+            updateTable(heap, buckets, depth, updates);
+            m.stop(report, "HEAP", updates);
+
+            m = Measurement.start();
+            updateTable(offHeap, buckets, depth, updates);
+            m.stop(report, "OFF_HEAP", updates);
+        }
+    }
+
+    /**
+     * Runs words through CountMinSketchState.add so that the tuple path garbage
+     * triggers collections while a large table is live, and reports the memory
+     * each storage takes for the same counts.
+     */
+    static void benchmarkStateStorage(int depth, int width, int updates) {
+        System.out.println("State storage, depth " + depth + ", width " + width);
+        String[] words = zipfWords(100000, updates);
+        for (CounterTable.Storage storage : CounterTable.Storage.values()) {
+            CountMinSketchState state = new CountMinSketchState(depth, width, SEED, 5, storage);
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                Measurement m = Measurement.start();
+                for (String word : words) {
+                    state.add(word, 1);
+                }
+                m.stop(round >= WARMUP_ROUNDS, storage.name(), updates);
+            }
+            System.out.println(String.format("  %-24s %12d bytes of counters", storage.name(), state.table.sizeInBytes()));
+        }
+    }
+
+    /**
+     * Compares the old PriorityQueue top-k maintenance with TopKTracker, fed with exact counts.
+     */
+    static void benchmarkTopK(int k, int updates) {
+        System.out.println("Top-k, k " + k);
+        String[] words = zipfWords(100000, updates);
+        long[] counts = exactRunningCounts(words);
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            boolean report = round >= WARMUP_ROUNDS;
+
+            Measurement m = Measurement.start();
+            Queue<TopTweet> queue = new PriorityQueue<TopTweet>(k);
+            for (int n = 0; n < updates; n++) {
+                TopTweet tweet = new TopTweet(words[n], counts[n]);
+                if (queue.contains(tweet)) {
+                    queue.remove(tweet);
+                }
+                queue.add(tweet);
+                if (queue.size() > k) {
+                    queue.poll();
+                }
+            }
+            m.stop(report, "PriorityQueue", updates);
+
+            m = Measurement.start();
+            TopKTracker tracker = new TopKTracker(k);
+            for (int n = 0; n < updates; n++) {
+                tracker.offer(words[n], counts[n]);
+            }
+            m.stop(report, "TopKTracker", updates);
+        }
+    }
+
+    /**
+     * Compares accuracy and throughput of the standard and the conservative update.
+     */
+    static void benchmarkConservativeUpdate(int depth, int width, int updates) {
+        System.out.println("Conservative update, depth " + depth + ", width " + width);
+        String[] words = zipfWords(100000, updates);
+        Map<String, Long> exact = new HashMap<String, Long>();
+        for (String word : words) {
+            Long count = exact.get(word);
+            exact.put(word, count == null ? 1 : count + 1);
+        }
+        for (boolean conservative : new boolean[]{false, true}) {
+            String name = conservative ? "conservative" : "standard";
+            CountMinSketchState state = null;
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                state = new CountMinSketchState(depth, width, SEED, 10);
+                state.setConservativeUpdate(conservative);
+                Measurement m = Measurement.start();
+                for (String word : words) {
+                    state.add(word, 1);
+                }
+                m.stop(round >= WARMUP_ROUNDS, name, updates);
+            }
+
+            double totalError = 0;
+            long maxError = 0;
+            for (Map.Entry<String, Long> e : exact.entrySet()) {
+                long error = state.estimateCount(e.getKey()) - e.getValue();
+                totalError += error;
+                maxError = Math.max(maxError, error);
+            }
+            int topHits = 0;
+            for (TopTweet tweet : state.getTopKItems()) {
+                // zipfWords makes word0 the most frequent word, word1 the next and so on.
+                if (Integer.parseInt(tweet.getText().substring(4)) < 10) {
+                    topHits++;
+                }
+            }
+            System.out.println(String.format("  %-24s mean error %10.1f, max error %8d, %d of the true top 10 found",
+                    name, totalError / exact.size(), maxError, topHits));
+        }
+    }
+
+    /**
+     * Compares size and speed of java serialization with the compact serializer.
+     */
+    static void benchmarkSerialization(int depth, int width, int updates, int copies) {
+        System.out.println("Serialization, depth " + depth + ", width " + width);
+        CountMinSketchState state = new CountMinSketchState(depth, width, SEED, 10);
+        for (String word : zipfWords(100000, updates)) {
+            state.add(word, 1);
+        }
+        try {
+            byte[] java = null;
+            byte[] compact = null;
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                boolean report = round >= WARMUP_ROUNDS;
+
+                Measurement m = Measurement.start();
+                for (int n = 0; n < copies; n++) {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    ObjectOutputStream out = new ObjectOutputStream(bos);
+                    out.writeObject(state);
+                    out.close();
+                    java = bos.toByteArray();
+                }
+                m.stop(report, "java write", copies);
+
+                m = Measurement.start();
+                for (int n = 0; n < copies; n++) {
+                    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(java));
+                    in.readObject();
+                }
+                m.stop(report, "java read", copies);
+
+                m = Measurement.start();
+                for (int n = 0; n < copies; n++) {
+                    compact = CountMinSketchState.serialize(state);
+                }
+                m.stop(report, "compact write", copies);
+
+                m = Measurement.start();
+                for (int n = 0; n < copies; n++) {
+                    CountMinSketchState.deserialize(ByteBuffer.wrap(compact));
+                }
+                m.stop(report, "compact read", copies);
+            }
+            System.out.println(String.format("  java %d bytes, compact %d bytes", java.length, compact.length));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Compares one shared ConcurrentCountMinSketchState updated by all threads with
+     * a private CountMinSketchState per thread, as separate partitions would keep.
+     */
+    static void benchmarkSharedUpdates(int depth, int width, int updates, int threads) {
+        System.out.println("Shared updates, depth " + depth + ", width " + width + ", " + threads + " threads");
+        final String[] words = zipfWords(100000, updates);
+        final int perThread = updates / threads;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            boolean report = round >= WARMUP_ROUNDS;
+
+            final CountMinSketchState shared = new ConcurrentCountMinSketchState(depth, width, SEED, 10);
+            CountMinSketchState[] states = new CountMinSketchState[threads];
+            Arrays.fill(states, shared);
+            Measurement m = Measurement.start();
+            runThreads(states, words, perThread);
+            m.stop(report, "shared", perThread * threads);
+
+            for (int t = 0; t < threads; t++) {
+                states[t] = new CountMinSketchState(depth, width, SEED, 10);
+            }
+            m = Measurement.start();
+            runThreads(states, words, perThread);
+            m.stop(report, "private per thread", perThread * threads);
+        }
+    }
+
+    private static void runThreads(final CountMinSketchState[] states, final String[] words, final int perThread) {
+        Thread[] threads = new Thread[states.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    CountMinSketchState state = states[index];
+                    for (int n = index * perThread, end = n + perThread; n < end; n++) {
+                        state.add(words[n], 1);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Compares the per-cell loops estimateCount and merge used with the
+     * CounterTable.minOf, addAndMin and addAll kernels.
+     */
+    static void benchmarkKernels(int depth, int width, int lookups) {
+        System.out.println("Kernels, depth " + depth + ", width " + width);
+        int[] buckets = randomBuckets(depth, width, 4096);
+        int[] item = new int[depth];
+        for (CounterTable.Storage storage : new CounterTable.Storage[]{CounterTable.Storage.HEAP, CounterTable.Storage.OFF_HEAP}) {
+            CounterTable table = CounterTable.allocate(storage, depth, width);
+            CounterTable other = CounterTable.allocate(storage, depth, width);
+            long sink = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                boolean report = round >= WARMUP_ROUNDS;
+
+                Measurement m = Measurement.start();
+                for (int n = 0; n < lookups; n++) {
+                    // Same copy as below, an item's buckets come in their own array.
+                    System.arraycopy(buckets, (n & 4095) * depth, item, 0, depth);
+                    long min = Long.MAX_VALUE;
+                    for (int i = 0; i < depth; i++) {
+                        min = Math.min(min, table.get(i, item[i]));
+                    }
+                    sink += min;
+                }
+                m.stop(report, storage + " get loop", lookups);
+
+                m = Measurement.start();
+                for (int n = 0; n < lookups; n++) {
+                    System.arraycopy(buckets, (n & 4095) * depth, item, 0, depth);
+                    sink += table.minOf(item);
+                }
+                m.stop(report, storage + " minOf", lookups);
+
+                m = Measurement.start();
+                for (int n = 0; n < lookups; n++) {
+                    System.arraycopy(buckets, (n & 4095) * depth, item, 0, depth);
+                    sink += table.addAndMin(item, 1);
+                }
+                m.stop(report, storage + " addAndMin", lookups);
+
+                int merges = Math.max(1, (1 << 24) / (depth * width));
+                m = Measurement.start();
+                for (int n = 0; n < merges; n++) {
+                    for (int i = 0; i < depth; i++) {
+                        for (int j = 0; j < width; j++) {
+                            table.add(i, j, other.get(i, j));
+                        }
+                    }
+                }
+                m.stop(report, storage + " cell add merge", (long) merges * depth * width);
+
+                m = Measurement.start();
+                for (int n = 0; n < merges; n++) {
+                    table.addAll(other);
+                }
+                m.stop(report, storage + " addAll", (long) merges * depth * width);
+            }
+            // Keeps the lookups from being optimized away.
+            if (sink == 42) {
+                System.out.println();
+            }
+        }
+    }
+
+    /**
+     * Compares the ways of hashing a word into its buckets: two MurmurHash2 passes over
+     * its UTF-16 bytes, and one 128 bit MurmurHash3 pass over its chars.
+     */
+    static void benchmarkHashing(int depth, int width, int hashes) {
+        System.out.println("Hashing, depth " + depth + ", width " + width);
+        String[] words = zipfWords(100000, 1 << 16);
+        for (int n = 0; n < words.length; n += 3) {
+            // Mixes in hashtag sized words with the short ones.
+            words[n] = "#" + words[n] + "trending" + n;
+        }
+        int[] buckets = new int[depth];
+        long sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            boolean report = round >= WARMUP_ROUNDS;
+
+            Measurement m = Measurement.start();
+            for (int n = 0; n < hashes; n++) {
+                byte[] b;
+                try {
+                    b = words[n & 0xffff].getBytes("UTF-16");
+                } catch (java.io.UnsupportedEncodingException e) {
+                    throw new RuntimeException(e);
+                }
+                int hash1 = MurmurHash.hash(b, b.length, 0);
+                int hash2 = MurmurHash.hash(b, b.length, hash1);
+                for (int i = 0; i < depth; i++) {
+                    buckets[i] = Math.abs((hash1 + i * hash2) % width);
+                }
+                sink += buckets[depth - 1];
+            }
+            m.stop(report, "murmur2 UTF-16 bytes", hashes);
+
+            m = Measurement.start();
+            for (int n = 0; n < hashes; n++) {
+                sink += Filter.getHashBuckets(words[n & 0xffff], depth, width, buckets)[depth - 1];
+            }
+            m.stop(report, "murmur3 128 chars", hashes);
+        }
+        // Keeps the hashes from being optimized away.
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    /**
+     * Returns the count of words[n] after its n-th occurrence.
+     */
+    static long[] exactRunningCounts(String[] words) {
+        Map<String, Long> exact = new HashMap<String, Long>();
+        long[] counts = new long[words.length];
+        for (int n = 0; n < words.length; n++) {
+            Long count = exact.get(words[n]);
+            counts[n] = count == null ? 1 : count + 1;
+            exact.put(words[n], counts[n]);
+        }
+        return counts;
+    }
+
+    private static void updateTable(CounterTable table, int[] buckets, int depth, int updates) {
+        for (int n = 0; n < updates; n++) {
+            int offset = (n & 4095) * depth;
+            for (int i = 0; i < depth; i++) {
+                table.add(i, buckets[offset + i], 1);
+            }
+        }
+    }
+
+    static int[] randomBuckets(int depth, int width, int items) {
+        Random r = new Random(SEED);
+        int[] buckets = new int[depth * items];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = r.nextInt(width);
+        }
+        return buckets;
+    }
+
+    /**
+     * Returns a vocabulary of words with a zipfian frequency, like the words of a tweet stream.
+     */
+    static String[] zipfWords(int distinct, int length) {
+        Random r = new Random(SEED);
+        double[] cumulative = new double[distinct];
+        double total = 0;
+        for (int i = 0; i < distinct; i++) {
+            total += 1.0 / (i + 1);
+            cumulative[i] = total;
+        }
+        String[] words = new String[length];
+        for (int n = 0; n < length; n++) {
+            double x = r.nextDouble() * total;
+            int lo = 0, hi = distinct - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] < x) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            words[n] = "word" + lo;
+        }
+        return words;
+    }
+
+    /**
+     * Wall clock and garbage collection time spent in one benchmark run.
+     */
+    static class Measurement {
+        long startNanos;
+        long startGcCount;
+        long startGcMillis;
+
+        static Measurement start() {
+            Measurement m = new Measurement();
+            m.startGcCount = gcCount();
+            m.startGcMillis = gcMillis();
+            m.startNanos = System.nanoTime();
+            return m;
+        }
+
+        void stop(boolean report, String name, long operations) {
+            long nanos = System.nanoTime() - startNanos;
+            if (report) {
+                System.out.println(String.format("  %-24s %12.0f ops/s  gc: %4d collections, %5d ms",
+                        name, operations * 1e9 / nanos, gcCount() - startGcCount, gcMillis() - startGcMillis));
+            }
+        }
+
+        private static long gcCount() {
+            long count = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += gc.getCollectionCount();
+            }
+            return count;
+        }
+
+        private static long gcMillis() {
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += gc.getCollectionTime();
+            }
+            return millis;
+        }
+    }
+}
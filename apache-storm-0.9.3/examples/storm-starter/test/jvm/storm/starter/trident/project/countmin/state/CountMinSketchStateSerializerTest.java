@@ -0,0 +1,116 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CountMinSketchStateSerializerTest {
+
+  private static final int ANY_DEPTH = 4;
+  private static final int ANY_SEED = 100;
+  private static final int ANY_K = 3;
+
+  @DataProvider
+  public Object[][] shapeData() {
+    // A narrow table ends up with dense rows, a wide one with sparse rows.
+    return new Object[][]{
+        { 64, CounterTable.Storage.HEAP },
+        { 64, CounterTable.Storage.OFF_HEAP },
+        { 1 << 16, CounterTable.Storage.HEAP },
+        { 1 << 16, CounterTable.Storage.OFF_HEAP } };
+  }
+
+  @Test(dataProvider = "shapeData")
+  public void streamRoundTripShouldRestoreTheState(int width, CounterTable.Storage storage) throws IOException {
+    // given
+    CountMinSketchState state = newState(width, storage);
+
+    // when
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    CountMinSketchState.serializer().serialize(state, new DataOutputStream(bos));
+    CountMinSketchState restored = CountMinSketchState.serializer().deserialize(
+        new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+
+    // then
+    assertSameState(restored, state);
+  }
+
+  @Test(dataProvider = "shapeData")
+  public void bufferRoundTripShouldRestoreTheStateAndMovePastIt(int width, CounterTable.Storage storage)
+      throws IOException {
+    // given
+    byte[] data = CountMinSketchState.serialize(newState(width, storage));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 1).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(data).put((byte) 42).flip();
+
+    // when
+    CountMinSketchState restored = CountMinSketchState.deserialize(buffer);
+
+    // then
+    assertSameState(restored, newState(width, storage));
+    assertThat(buffer.get()).isEqualTo((byte) 42);
+    assertThat(buffer.order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @Test
+  public void sparseRowsShouldBeSmallerThanTheCounters() {
+    // given
+    CountMinSketchState state = newState(1 << 16, CounterTable.Storage.HEAP);
+
+    // when
+    byte[] data = CountMinSketchState.serialize(state);
+
+    // then
+    assertThat(data.length).isLessThan(ANY_DEPTH * (1 << 16));
+  }
+
+  @Test
+  public void sharedStateShouldBeRestoredAsASharedState() throws IOException {
+    // given
+    ConcurrentCountMinSketchState state = new ConcurrentCountMinSketchState(ANY_DEPTH, 64, ANY_SEED, ANY_K);
+    CountMinSketchStateTest.addRandomWords(state);
+
+    // when
+    CountMinSketchState restored = CountMinSketchState.deserialize(ByteBuffer.wrap(CountMinSketchState.serialize(state)));
+
+    // then
+    assertThat(restored).isInstanceOf(ConcurrentCountMinSketchState.class);
+    assertThat(Arrays.deepEquals(restored.table.toArray(), state.table.toArray())).isTrue();
+    assertThat(restored.size()).isEqualTo(state.size());
+    assertThat(restored.getTopKItems()).containsOnly(state.getTopKItems());
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void unknownDataShouldThrowIOException() throws IOException {
+    CountMinSketchState.deserialize(ByteBuffer.wrap(new byte[]{ 1, 2, 3, 4, 5, 6, 7, 8 }));
+  }
+
+  private static CountMinSketchState newState(int width, CounterTable.Storage storage) {
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, width, ANY_SEED, ANY_K, storage);
+    state.setConservativeUpdate(true);
+    CountMinSketchStateTest.addRandomWords(state);
+    return state;
+  }
+
+  private static void assertSameState(CountMinSketchState actual, CountMinSketchState expected) {
+    assertThat(actual.table.storage()).isEqualTo(expected.table.storage());
+    assertThat(Arrays.deepEquals(actual.table.toArray(), expected.table.toArray())).isTrue();
+    assertThat(actual.hashA).isEqualTo(expected.hashA);
+    assertThat(actual.size()).isEqualTo(expected.size());
+    assertThat(actual.isConservativeUpdate()).isEqualTo(expected.isConservativeUpdate());
+    assertThat(actual.getTopKItems()).containsOnly(expected.getTopKItems());
+    for (TopTweet tweet : expected.getTopKItems()) {
+      assertThat(actual.heap.count(tweet.getText())).isEqualTo(tweet.getCount());
+    }
+  }
+}
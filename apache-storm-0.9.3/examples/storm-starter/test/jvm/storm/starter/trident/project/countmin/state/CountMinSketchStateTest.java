@@ -0,0 +1,270 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CountMinSketchStateTest {
+
+  private static final int ANY_DEPTH = 4;
+  private static final int ANY_WIDTH = 64;
+  private static final int ANY_SEED = 100;
+  private static final int ANY_K = 3;
+
+  @DataProvider
+  public Object[][] updateModeData() {
+    return new Object[][]{ { false }, { true } };
+  }
+
+  @Test(dataProvider = "updateModeData")
+  public void estimatesShouldNeverUnderCount(boolean conservative) {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    state.setConservativeUpdate(conservative);
+    Map<String, Long> exact = addRandomWords(state);
+
+    // then
+    for (Map.Entry<String, Long> e : exact.entrySet()) {
+      assertThat(state.estimateCount(e.getKey())).isGreaterThanOrEqualTo(e.getValue());
+    }
+  }
+
+  @Test
+  public void conservativeUpdateShouldNotOverEstimateMoreThanStandardUpdate() {
+    // given
+    CountMinSketchState standard = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    CountMinSketchState conservative = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    conservative.setConservativeUpdate(true);
+
+    // when
+    Map<String, Long> exact = addRandomWords(standard);
+    addRandomWords(conservative);
+
+    // then
+    for (String word : exact.keySet()) {
+      assertThat(conservative.estimateCount(word)).isLessThanOrEqualTo(standard.estimateCount(word));
+    }
+    assertThat(conservative.size()).isEqualTo(standard.size());
+  }
+
+  @Test
+  public void addAndEstimateShouldReturnTheNewEstimate() {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    state.add("foo", 2);
+
+    // when
+    long estimate = state.addAndEstimate("foo", 3);
+
+    // then
+    assertThat(estimate).isEqualTo(state.estimateCount("foo"));
+    assertThat(estimate).isGreaterThanOrEqualTo(5);
+  }
+
+  @Test
+  public void topKShouldHoldTheMostFrequentWords() {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, 1024, ANY_SEED, 2);
+
+    // when
+    state.add("foo", 10);
+    state.add("bar", 1);
+    state.add("baz", 5);
+    state.add("qux", 2);
+
+    // then
+    TopTweet[] top = state.getTopKItems();
+    assertThat(top).hasSize(2);
+    assertThat(top).contains(new TopTweet("foo", 10), new TopTweet("baz", 5));
+  }
+
+  @Test
+  public void topKSnapshotShouldBeSortedAndReusedUntilTheTopKChanges() {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    state.add("foo", 2);
+    state.add("bar", 5);
+
+    // when
+    TopKSnapshot first = state.getTopKSnapshot();
+    TopKSnapshot second = state.getTopKSnapshot();
+    state.add("foo", 4);
+    TopKSnapshot third = state.getTopKSnapshot();
+
+    // then
+    assertThat(second).isSameAs(first);
+    assertThat(first.toString()).isEqualTo(" [bar: 5] [foo: 2] ");
+    assertThat(third).isNotSameAs(first);
+    assertThat(third.getItems().get(0).getText()).isEqualTo("foo");
+  }
+
+  @Test
+  public void blankWordsShouldBeIgnored() {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+
+    // when
+    state.add(" ", 1);
+    state.add((String) null, 1);
+
+    // then
+    assertThat(state.size()).isEqualTo(0);
+    assertThat(state.getTopKItems()).isEmpty();
+  }
+
+  @Test
+  public void mergeShouldMatchASketchOfTheCombinedStreams() {
+    // given
+    CountMinSketchState combined = new CountMinSketchState(ANY_DEPTH, 1024, ANY_SEED, 2);
+    CountMinSketchState first = new CountMinSketchState(ANY_DEPTH, 1024, ANY_SEED, 2);
+    CountMinSketchState second = new CountMinSketchState(ANY_DEPTH, 1024, ANY_SEED, 2);
+    // "bar" is outside the top-k of the second partition, its count there must not be lost.
+    first.add("foo", 10);
+    first.add("bar", 7);
+    second.add("qux", 9);
+    second.add("quux", 8);
+    second.add("bar", 5);
+    combined.add("foo", 10);
+    combined.add("bar", 12);
+    combined.add("qux", 9);
+    combined.add("quux", 8);
+
+    // when
+    CountMinSketchState merged = CountMinSketchState.merge(first, second);
+
+    // then
+    assertThat(merged.size()).isEqualTo(combined.size());
+    assertThat(Arrays.deepEquals(merged.table.toArray(), combined.table.toArray())).isTrue();
+    assertThat(merged.getTopKItems()).containsOnly(new TopTweet("bar", 12), new TopTweet("foo", 10));
+  }
+
+  @Test
+  public void mergeShouldKeepTheUpdateModeAndMemoryBudget() {
+    // given
+    CountMinSketchState first = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    CountMinSketchState second = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    for (CountMinSketchState state : new CountMinSketchState[]{ first, second }) {
+      state.setConservativeUpdate(true);
+      state.setMemoryBudget(1024);
+    }
+
+    // when
+    CountMinSketchState merged = CountMinSketchState.merge(first, second);
+
+    // then
+    assertThat(merged.isConservativeUpdate()).isTrue();
+    assertThat(merged.getMemoryBudget()).isEqualTo(1024);
+  }
+
+  @DataProvider
+  public Object[][] compactStorageData() {
+    return new Object[][]{ { CounterTable.Storage.COMPACT_16 }, { CounterTable.Storage.COMPACT_32 } };
+  }
+
+  @Test(dataProvider = "compactStorageData")
+  public void mergeShouldSumOverflowingCompactCellsOfEveryRow(CounterTable.Storage storage) {
+    // given tables large enough for the merge to split their rows over several forks
+    int depth = 8;
+    int width = 1 << 14;
+    CountMinSketchState first = new CountMinSketchState(depth, width, ANY_SEED, ANY_K, storage);
+    CountMinSketchState second = new CountMinSketchState(depth, width, ANY_SEED, ANY_K, storage);
+    for (int i = 0; i < depth; i++) {
+      for (int j = 0; j < width; j++) {
+        first.table.set(i, j, 40000 + j);
+        second.table.set(i, j, j % 2 == 0 ? (1L << 32) + i : 30000);
+      }
+    }
+
+    // when
+    CountMinSketchState merged = CountMinSketchState.merge(first, second);
+
+    // then every cell overflows 16 bit counters, and every other one 32 bit counters
+    for (int i = 0; i < depth; i++) {
+      for (int j = 0; j < width; j++) {
+        long expected = 40000 + j + (j % 2 == 0 ? (1L << 32) + i : 30000);
+        assertThat(merged.table.get(i, j)).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = CountMinSketchState.CMSMergeException.class)
+  public void mergingDifferentWidthsShouldThrow() {
+    CountMinSketchState.merge(new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K),
+        new CountMinSketchState(ANY_DEPTH, ANY_WIDTH * 2, ANY_SEED, ANY_K));
+  }
+
+  @Test
+  public void foldShouldMatchASketchOfHalfTheWidth() {
+    // given
+    CountMinSketchState wide = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    CountMinSketchState narrow = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH / 2, ANY_SEED, ANY_K);
+    addRandomWords(wide);
+    addRandomWords(narrow);
+    wide.add(42L, 7);
+    narrow.add(42L, 7);
+
+    // when
+    wide.fold();
+
+    // then
+    assertThat(Arrays.deepEquals(wide.table.toArray(), narrow.table.toArray())).isTrue();
+    assertThat(wide.getRelativeError()).isEqualTo(narrow.getRelativeError());
+    assertThat(wide.estimateCount(42L)).isEqualTo(narrow.estimateCount(42L));
+    for (TopTweet tweet : wide.getTopKItems()) {
+      assertThat(tweet.getCount()).isEqualTo(narrow.estimateCount(tweet.getText()));
+    }
+  }
+
+  @Test
+  public void commitShouldFoldUntilTheTableFitsTheBudget() {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K,
+        CounterTable.Storage.COMPACT_16);
+    state.setMemoryBudget(ANY_DEPTH * ANY_WIDTH * 2);
+    state.add("foo", 1L << 40);
+
+    // when
+    state.commit(1L);
+
+    // then
+    assertThat(state.width).isEqualTo(ANY_WIDTH / 2);
+    assertThat(state.sizeInBytes()).isLessThanOrEqualTo(ANY_DEPTH * ANY_WIDTH * 2);
+    assertThat(state.estimateCount("foo")).isGreaterThanOrEqualTo(1L << 40);
+  }
+
+  @Test
+  public void factoryShouldSizeStatesFromTheErrorAndTheBudget() {
+    // given
+    CountMinSketchStateFactory factory = new CountMinSketchStateFactory(0.001, 0.99, ANY_SEED, ANY_K);
+
+    // when
+    CountMinSketchState unbounded = (CountMinSketchState) factory.makeState(null, null, 0, 1);
+    CountMinSketchState bounded = (CountMinSketchState) factory.setMemoryBudget(7 * 512 * 8)
+        .makeState(null, null, 0, 1);
+
+    // then
+    assertThat(unbounded.depth).isEqualTo(7);
+    assertThat(unbounded.width).isEqualTo(2048);
+    assertThat(unbounded.getRelativeError()).isLessThanOrEqualTo(0.001);
+    assertThat(bounded.width).isEqualTo(512);
+    assertThat(bounded.getMemoryBudget()).isEqualTo(7 * 512 * 8);
+  }
+
+  static Map<String, Long> addRandomWords(CountMinSketchState state) {
+    Random random = new Random(ANY_SEED);
+    Map<String, Long> exact = new HashMap<String, Long>();
+    for (int i = 0; i < 5000; i++) {
+      String word = "word" + random.nextInt(500);
+      state.add(word, 1);
+      Long count = exact.get(word);
+      exact.put(word, count == null ? 1 : count + 1);
+    }
+    return exact;
+  }
+}
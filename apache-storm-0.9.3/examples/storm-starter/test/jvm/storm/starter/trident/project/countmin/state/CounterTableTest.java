@@ -0,0 +1,199 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CounterTableTest {
+
+  private static final int ANY_DEPTH = 3;
+  private static final int ANY_WIDTH = 7;
+
+  @DataProvider
+  public Object[][] storageData() {
+    CounterTable.Storage[] storages = CounterTable.Storage.values();
+    Object[][] data = new Object[storages.length][];
+    for (int i = 0; i < storages.length; i++) {
+      data[i] = new Object[]{ storages[i] };
+    }
+    return data;
+  }
+
+  @DataProvider
+  public Object[][] compactStorageData() {
+    return new Object[][]{ { CounterTable.Storage.COMPACT_16 }, { CounterTable.Storage.COMPACT_32 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "storageData")
+  public void zeroWidthShouldThrowIAE(CounterTable.Storage storage) {
+    CounterTable.allocate(storage, ANY_DEPTH, 0);
+  }
+
+  @Test(dataProvider = "storageData")
+  public void newTableShouldBeZeroed(CounterTable.Storage storage) {
+    // given
+    CounterTable table = CounterTable.allocate(storage, ANY_DEPTH, ANY_WIDTH);
+
+    // then
+    for (int i = 0; i < ANY_DEPTH; i++) {
+      for (int j = 0; j < ANY_WIDTH; j++) {
+        assertThat(table.get(i, j)).isEqualTo(0);
+      }
+    }
+  }
+
+  @Test(dataProvider = "storageData")
+  public void addShouldOnlyTouchOneCellAndReturnNewValue(CounterTable.Storage storage) {
+    // given
+    CounterTable table = CounterTable.allocate(storage, ANY_DEPTH, ANY_WIDTH);
+
+    // when
+    table.add(1, 2, 5);
+    long value = table.add(1, 2, 3);
+
+    // then
+    assertThat(value).isEqualTo(8);
+    assertThat(table.get(1, 2)).isEqualTo(8);
+    assertThat(table.get(1, 3)).isEqualTo(0);
+    assertThat(table.get(2, 2)).isEqualTo(0);
+  }
+
+  @Test(dataProvider = "storageData")
+  public void kernelsShouldMatchTheCellByCellLoops(CounterTable.Storage storage) {
+    // given
+    int depth = 7;
+    CounterTable table = CounterTable.allocate(storage, depth, ANY_WIDTH);
+    CounterTable reference = CounterTable.allocate(CounterTable.Storage.HEAP, depth, ANY_WIDTH);
+    Random random = new Random(depth);
+    int[] buckets = new int[depth];
+
+    for (int n = 0; n < 100; n++) {
+      // when
+      long expected = Long.MAX_VALUE;
+      for (int i = 0; i < depth; i++) {
+        buckets[i] = random.nextInt(ANY_WIDTH);
+        expected = Math.min(expected, reference.add(i, buckets[i], n));
+      }
+      long actual = table.addAndMin(buckets, n);
+
+      // then
+      assertThat(actual).isEqualTo(expected);
+      assertThat(table.minOf(buckets)).isEqualTo(expected);
+    }
+    assertThat(Arrays.deepEquals(table.toArray(), reference.toArray())).isTrue();
+  }
+
+  @Test(dataProvider = "storageData")
+  public void addAllShouldSumEveryCell(CounterTable.Storage storage) {
+    // given
+    CounterTable table = CounterTable.allocate(storage, ANY_DEPTH, ANY_WIDTH);
+    CounterTable other = CounterTable.allocate(CounterTable.Storage.HEAP, ANY_DEPTH, ANY_WIDTH);
+    table.set(0, 0, 1);
+    other.set(0, 0, 2);
+    other.set(2, 6, 4);
+
+    // when
+    table.addAll(other);
+
+    // then
+    assertThat(table.get(0, 0)).isEqualTo(3);
+    assertThat(table.get(2, 6)).isEqualTo(4);
+  }
+
+  @Test(dataProvider = "compactStorageData")
+  public void compactCellsShouldOverflowAndComeBack(CounterTable.Storage storage) {
+    // given
+    CounterTable table = CounterTable.allocate(storage, ANY_DEPTH, ANY_WIDTH);
+    long large = 1L << 40;
+
+    // when
+    table.add(1, 1, large);
+    table.add(1, 1, 1);
+    table.set(2, 2, -3);
+
+    // then
+    assertThat(table.get(1, 1)).isEqualTo(large + 1);
+    assertThat(table.get(2, 2)).isEqualTo(-3);
+    assertThat(table.get(1, 2)).isEqualTo(0);
+    assertThat(((CompactCounterTable) table).overflowed()).isEqualTo(2);
+
+    // when
+    table.add(1, 1, -large);
+    table.set(2, 2, 0);
+
+    // then
+    assertThat(table.get(1, 1)).isEqualTo(1);
+    assertThat(table.get(2, 2)).isEqualTo(0);
+    assertThat(((CompactCounterTable) table).overflowed()).isEqualTo(0);
+  }
+
+  @Test
+  public void compactCellsShouldOverflowAtTheirWidth() {
+    // given
+    CounterTable table = CounterTable.allocate(CounterTable.Storage.COMPACT_16, ANY_DEPTH, ANY_WIDTH);
+
+    // when
+    long below = table.add(0, 0, 65534);
+    long at = table.add(0, 0, 1);
+
+    // then
+    assertThat(below).isEqualTo(65534);
+    assertThat(at).isEqualTo(65535);
+    assertThat(((CompactCounterTable) table).overflowed()).isEqualTo(1);
+  }
+
+  @Test
+  public void compactTablesShouldTakeLessMemory() {
+    long heap = CounterTable.allocate(CounterTable.Storage.HEAP, ANY_DEPTH, 4096).sizeInBytes();
+    assertThat(CounterTable.allocate(CounterTable.Storage.COMPACT_32, ANY_DEPTH, 4096).sizeInBytes())
+        .isLessThan(heap * 6 / 10);
+    assertThat(CounterTable.allocate(CounterTable.Storage.COMPACT_16, ANY_DEPTH, 4096).sizeInBytes())
+        .isLessThan(heap * 3 / 10);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void addAllOfDifferentShapeShouldThrowIAE() {
+    CounterTable table = CounterTable.allocate(CounterTable.Storage.HEAP, ANY_DEPTH, ANY_WIDTH);
+    table.addAll(CounterTable.allocate(CounterTable.Storage.HEAP, ANY_DEPTH, ANY_WIDTH + 1));
+  }
+
+  @Test(dataProvider = "storageData")
+  public void shouldSurviveJavaSerialization(CounterTable.Storage storage) throws Exception {
+    // given
+    CounterTable table = CounterTable.allocate(storage, ANY_DEPTH, ANY_WIDTH);
+    table.set(2, 5, 42);
+
+    // when
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bos);
+    out.writeObject(table);
+    out.close();
+    CounterTable copy = (CounterTable) new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray())).readObject();
+
+    // then
+    assertThat(copy.storage()).isEqualTo(storage);
+    assertThat(copy.get(2, 5)).isEqualTo(42);
+    assertThat(copy.get(0, 0)).isEqualTo(0);
+  }
+
+  @Test
+  public void fromArrayShouldKeepTheOldLayoutValues() {
+    // given
+    long[][] rows = new long[][]{ { 1, 2 }, { 3, 4 } };
+
+    // when
+    CounterTable table = CounterTable.fromArray(rows);
+
+    // then
+    assertThat(table.get(1, 0)).isEqualTo(3);
+    assertThat(table.toArray()[0][1]).isEqualTo(2);
+  }
+}
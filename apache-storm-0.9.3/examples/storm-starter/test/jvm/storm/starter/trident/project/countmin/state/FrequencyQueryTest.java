@@ -0,0 +1,63 @@
+package storm.starter.trident.project.countmin.state;
+
+import backtype.storm.tuple.Values;
+import org.testng.annotations.Test;
+import storm.trident.operation.TridentCollector;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class FrequencyQueryTest {
+
+  private static final int ANY_DEPTH = 4;
+  private static final int ANY_WIDTH = 64;
+  private static final int ANY_SEED = 100;
+  private static final int ANY_K = 3;
+
+  private TridentTuple mockWordTuple(String word) {
+    TridentTuple tuple = mock(TridentTuple.class);
+    when(tuple.getString(0)).thenReturn(word);
+    return tuple;
+  }
+
+  @Test
+  public void shouldEstimateEveryWordOfTheBatch() {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    state.add("foo", 5);
+    state.add("bar", 3);
+    FrequencyQuery query = new FrequencyQuery();
+
+    // when
+    List<Values> counts = query.batchRetrieve(state, Arrays.asList(
+        mockWordTuple("foo"), mockWordTuple("BAR"), mockWordTuple("foo")));
+
+    // then
+    assertThat(counts).hasSize(3);
+    assertThat(counts.get(0).get(0)).isEqualTo(state.estimateCount("foo"));
+    assertThat(counts.get(1).get(0)).isEqualTo(state.estimateCount("bar"));
+    assertThat(counts.get(2)).isEqualTo(counts.get(0));
+  }
+
+  @Test
+  public void shouldEmitTheErrorBoundWithTheEstimate() {
+    // given
+    CountMinSketchState state = new CountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    state.add("foo", 1000);
+    FrequencyQuery query = new FrequencyQuery();
+    TridentTuple tuple = mockWordTuple("foo");
+    TridentCollector collector = mock(TridentCollector.class);
+
+    // when
+    List<Values> counts = query.batchRetrieve(state, Arrays.asList(tuple));
+    query.execute(tuple, counts.get(0), collector);
+
+    // then
+    long error = (long) Math.ceil(2.0 / ANY_WIDTH * 1000);
+    verify(collector).emit(new Values(1000L, error));
+  }
+}
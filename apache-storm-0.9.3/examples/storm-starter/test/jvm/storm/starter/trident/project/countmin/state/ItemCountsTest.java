@@ -0,0 +1,63 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ItemCountsTest {
+
+  @Test
+  public void shouldCountLikeALinkedHashMapAcrossGrowthAndReuse() {
+    // given
+    ItemCounts counts = new ItemCounts(4);
+    Map<String, Long> reference = new LinkedHashMap<String, Long>();
+    Random random = new Random(3);
+
+    for (int round = 0; round < 20; round++) {
+      // when
+      counts.clear();
+      reference.clear();
+      // Rounds of up to 500 distinct keys grow the map well past its initial capacity,
+      // "Aa" and "BB" share a hash code.
+      int distinct = 1 + random.nextInt(500);
+      for (int n = 0; n < 2000; n++) {
+        String key = random.nextInt(10) == 0 ? (random.nextBoolean() ? "Aa" : "BB") : "w" + random.nextInt(distinct);
+        long delta = 1 + random.nextInt(5);
+        counts.add(key, delta);
+        Long count = reference.get(key);
+        reference.put(key, count == null ? delta : count + delta);
+      }
+
+      // then
+      assertThat(counts.size()).isEqualTo(reference.size());
+      List<String> keys = new ArrayList<String>(reference.keySet());
+      for (int i = 0; i < counts.size(); i++) {
+        assertThat(counts.key(i)).isEqualTo(keys.get(i));
+        assertThat(counts.count(i)).isEqualTo(reference.get(keys.get(i)));
+      }
+    }
+  }
+
+  @Test
+  public void clearShouldForgetTheKeysAndTheirCounts() {
+    // given
+    ItemCounts counts = new ItemCounts(4);
+    counts.add("foo", 3);
+    counts.add("bar", 1);
+
+    // when
+    counts.clear();
+    counts.add("bar", 2);
+
+    // then
+    assertThat(counts.size()).isEqualTo(1);
+    assertThat(counts.key(0)).isEqualTo("bar");
+    assertThat(counts.count(0)).isEqualTo(2);
+  }
+}
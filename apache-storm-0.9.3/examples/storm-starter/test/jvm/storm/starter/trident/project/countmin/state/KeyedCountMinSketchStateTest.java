@@ -0,0 +1,102 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.Test;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class KeyedCountMinSketchStateTest {
+
+  private static final int ANY_DEPTH = 4;
+  private static final int ANY_WIDTH = 64;
+  private static final int ANY_SEED = 100;
+  private static final int ANY_K = 3;
+
+  private KeyedCountMinSketchState newState(int maxDimensions) {
+    CountMinSketchStateFactory dimensionFactory = new CountMinSketchStateFactory(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K);
+    return (KeyedCountMinSketchState) new KeyedCountMinSketchStateFactory(dimensionFactory, maxDimensions)
+        .makeState(new HashMap(), null, 0, 1);
+  }
+
+  private TridentTuple mockTuple(String... values) {
+    TridentTuple tuple = mock(TridentTuple.class);
+    for (int i = 0; i < values.length; i++) {
+      when(tuple.getString(i)).thenReturn(values[i]);
+    }
+    return tuple;
+  }
+
+  @Test
+  public void shouldCountEveryDimensionOnItsOwn() {
+    // given
+    KeyedCountMinSketchState state = newState(16);
+
+    // when
+    state.add("hashtag", "tbt", 5);
+    state.add("url", "tbt", 2);
+
+    // then
+    assertThat(state.dimensions()).isEqualTo(Arrays.asList("hashtag", "url"));
+    assertThat(state.get("hashtag").estimateCount("tbt")).isEqualTo(5);
+    assertThat(state.get("url").estimateCount("tbt")).isEqualTo(2);
+    assertThat(state.get("place_fullname")).isNull();
+  }
+
+  @Test
+  public void shouldDropItemsPastTheMaxDimensions() {
+    // given
+    KeyedCountMinSketchState state = newState(1);
+    state.add("hashtag", "tbt", 5);
+
+    // when
+    state.add("url", "http://t.co", 2);
+
+    // then
+    assertThat(state.dimensions()).isEqualTo(Arrays.asList("hashtag"));
+    assertThat(state.droppedItems()).isEqualTo(2);
+  }
+
+  @Test
+  public void updaterShouldRouteTuplesByDimension() {
+    // given
+    KeyedCountMinSketchState state = newState(16);
+    List<TridentTuple> tuples = new ArrayList<TridentTuple>();
+    tuples.add(mockTuple("hashtag", "tbt"));
+    tuples.add(mockTuple("hashtag", "tbt"));
+    tuples.add(mockTuple("account_mentioned", "42"));
+
+    // when
+    new KeyedCountMinSketchUpdater().updateState(state, tuples, null);
+
+    // then
+    assertThat(state.get("hashtag").estimateCount("tbt")).isEqualTo(2);
+    assertThat(state.get("account_mentioned").estimateCount("42")).isEqualTo(1);
+  }
+
+  @Test
+  public void queryShouldRenderTheTopKOfTheRequestedDimensions() {
+    // given
+    KeyedCountMinSketchState state = newState(16);
+    state.add("hashtag", "tbt", 5);
+    state.add("url", "http://t.co", 2);
+
+    // when
+    List<String> trends = new TrendingQuery().batchRetrieve(state, Arrays.asList(mockTuple(""), mockTuple("url")));
+
+    // then
+    assertThat(trends.get(0)).isEqualTo("hashtag: [tbt: 5] \nurl: [http://t.co: 2] ");
+    assertThat(trends.get(1)).isEqualTo("url: [http://t.co: 2] ");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void sharedDimensionsShouldThrowIAE() {
+    new KeyedCountMinSketchStateFactory(
+        new CountMinSketchStateFactory(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K).setShared(true), 16);
+  }
+}
@@ -0,0 +1,40 @@
+package storm.starter.trident.project.countmin.state;
+
+import com.google.common.hash.Hashing;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class MurmurHashTest {
+
+  private static final int ANY_SEED = 42;
+
+  @DataProvider
+  public Object[][] wordData() {
+    // Lengths around the 4, 8 and 16 byte blocks of the hashes.
+    return new Object[][]{ { "" }, { "a" }, { "ab" }, { "love" }, { "#trend" }, { "abcdefgh" },
+        { "café au lait" }, { "@someone_with_a_long_name" } };
+  }
+
+  @Test(dataProvider = "wordData")
+  public void murmur3ShouldMatchTheReferenceImplementation(String word) throws Exception {
+    // given
+    byte[] bytes = word.getBytes("UTF-16LE");
+    ByteBuffer expected = ByteBuffer.wrap(Hashing.murmur3_128(ANY_SEED).hashBytes(bytes).asBytes())
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    // when
+    long[] chars = MurmurHash.hash3_x64_128(word, ANY_SEED, new long[2]);
+    long[] buffer = MurmurHash.hash3_x64_128(ByteBuffer.wrap(bytes), ANY_SEED, new long[2]);
+
+    // then
+    assertThat(chars[0]).isEqualTo(expected.getLong(0));
+    assertThat(chars[1]).isEqualTo(expected.getLong(8));
+    assertThat(buffer).isEqualTo(chars);
+    assertThat(MurmurHash.hash3_x64_64(word, ANY_SEED)).isEqualTo(chars[0]);
+  }
+}
@@ -0,0 +1,89 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RotatingBloomFilterTest {
+
+  private static final int ANY_SLOTS = 3;
+  private static final long ANY_SLOT_LENGTH_MS = 1000;
+
+  // The window starts now, the filter's own clock never moves it past what the test advances to.
+  private RotatingBloomFilter newFilter(long startMs) {
+    BloomFilter[] slots = new BloomFilter[ANY_SLOTS];
+    for (int i = 0; i < ANY_SLOTS; i++) {
+      slots[i] = BloomFilter.forExpectedItems(1000, 0.001);
+    }
+    return new RotatingBloomFilter(slots, ANY_SLOT_LENGTH_MS, 0, startMs);
+  }
+
+  @Test
+  public void itemsShouldBeRememberedWithinTheWindow() {
+    // given
+    long now = System.currentTimeMillis();
+    RotatingBloomFilter filter = newFilter(now);
+    filter.add(42L);
+
+    // when
+    filter.advance(now + (ANY_SLOTS - 1) * ANY_SLOT_LENGTH_MS);
+
+    // then
+    assertThat(filter.isPresent(42L)).isTrue();
+    assertThat(filter.addAndCheck(42L)).isTrue();
+  }
+
+  @Test
+  public void itemsShouldBeForgottenOnceTheirIntervalExpires() {
+    // given
+    long now = System.currentTimeMillis();
+    RotatingBloomFilter filter = newFilter(now);
+    filter.add(42L);
+    filter.add("foo");
+
+    // when
+    filter.advance(now + ANY_SLOTS * ANY_SLOT_LENGTH_MS);
+
+    // then
+    assertThat(filter.isPresent(42L)).isFalse();
+    assertThat(filter.isPresent("foo")).isFalse();
+  }
+
+  @Test
+  public void serializerShouldRoundTrip() throws IOException {
+    // given
+    long now = System.currentTimeMillis();
+    RotatingBloomFilter filter = newFilter(now);
+    filter.add(42L);
+    filter.advance(now + ANY_SLOT_LENGTH_MS);
+
+    // when
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    RotatingBloomFilter.serializer().serialize(filter, new DataOutputStream(bos));
+    RotatingBloomFilter copy = RotatingBloomFilter.serializer()
+        .deserialize(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+
+    // then
+    assertThat(copy.current).isEqualTo(filter.current);
+    assertThat(copy.slotStartMs).isEqualTo(filter.slotStartMs);
+    assertThat(copy.isPresent(42L)).isTrue();
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void deserializingACurrentSlotOutOfRangeShouldThrowIOException() throws IOException {
+    // given a filter written with a current slot past its last one
+    RotatingBloomFilter filter = newFilter(System.currentTimeMillis());
+    filter.current = ANY_SLOTS;
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    RotatingBloomFilter.serializer().serialize(filter, new DataOutputStream(bos));
+
+    // when
+    RotatingBloomFilter.serializer().deserialize(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+  }
+}
@@ -0,0 +1,86 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SlidingWindowCountMinSketchStateTest {
+
+  private static final int ANY_DEPTH = 16;
+  private static final int ANY_WIDTH = 1024;
+  private static final int ANY_SEED = 100;
+  private static final int ANY_K = 3;
+  private static final int NUM_SLOTS = 3;
+  private static final long SLOT_LENGTH_MS = 1000;
+
+  private SlidingWindowCountMinSketchState newState() {
+    return new SlidingWindowCountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K, CounterTable.Storage.HEAP,
+        NUM_SLOTS, SLOT_LENGTH_MS);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void zeroSlotsShouldThrowIAE() {
+    new SlidingWindowCountMinSketchState(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K, CounterTable.Storage.HEAP, 0,
+        SLOT_LENGTH_MS);
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void conservativeUpdateShouldNotBeSupported() {
+    newState().setConservativeUpdate(true);
+  }
+
+  @Test
+  public void countsShouldStayWhileInsideTheWindow() {
+    // given
+    SlidingWindowCountMinSketchState state = newState();
+    long start = state.slotStartMs;
+    state.add("foo", 10);
+
+    // when
+    state.advance(start + (NUM_SLOTS - 1) * SLOT_LENGTH_MS);
+
+    // then
+    assertThat(state.estimateCount("foo")).isEqualTo(10);
+    assertThat(state.size()).isEqualTo(10);
+  }
+
+  @Test
+  public void countsShouldExpireOnceOutsideTheWindow() {
+    // given
+    SlidingWindowCountMinSketchState state = newState();
+    long start = state.slotStartMs;
+    state.add("old", 10);
+
+    // when
+    long now = start;
+    for (int i = 1; i <= NUM_SLOTS; i++) {
+      now = start + i * SLOT_LENGTH_MS;
+      state.advance(now);
+      state.add("new", 2);
+    }
+    for (int i = 0; i < SlidingWindowCountMinSketchState.DRAIN_STEPS; i++) {
+      state.advance(now);
+    }
+
+    // then
+    assertThat(state.estimateCount("old")).isEqualTo(0);
+    assertThat(state.estimateCount("new")).isEqualTo(2 * NUM_SLOTS);
+    assertThat(state.size()).isEqualTo(2 * NUM_SLOTS);
+    assertThat(state.getTopKItems()).containsOnly(new TopTweet("new", 2 * NUM_SLOTS));
+  }
+
+  @Test
+  public void idlingLongerThanTheWindowShouldClearEverything() {
+    // given
+    SlidingWindowCountMinSketchState state = newState();
+    state.add("foo", 10);
+
+    // when
+    state.advance(state.slotStartMs + 100 * SLOT_LENGTH_MS);
+
+    // then
+    assertThat(state.estimateCount("foo")).isEqualTo(0);
+    assertThat(state.size()).isEqualTo(0);
+    assertThat(state.getTopKItems()).isEmpty();
+  }
+}
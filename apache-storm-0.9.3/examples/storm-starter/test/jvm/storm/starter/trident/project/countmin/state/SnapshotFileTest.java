@@ -0,0 +1,101 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class SnapshotFileTest {
+
+  private static final int ANY_DEPTH = 4;
+  private static final int ANY_WIDTH = 2048;
+  private static final int ANY_SEED = 100;
+  private static final int ANY_K = 3;
+
+  private File dir;
+
+  @BeforeMethod
+  public void createDirectory() throws IOException {
+    dir = Files.createTempDirectory("countmin").toFile();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() {
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  private CountMinSketchStateFactory newFactory() {
+    return new CountMinSketchStateFactory(ANY_DEPTH, ANY_WIDTH, ANY_SEED, ANY_K).setSnapshotDirectory(dir.getPath());
+  }
+
+  @Test
+  public void restartShouldRestoreTheLastCommit() {
+    // given
+    CountMinSketchState state = (CountMinSketchState) newFactory().makeState(null, null, 0, 1);
+    state.beginCommit(1L);
+    CountMinSketchStateTest.addRandomWords(state);
+    state.commit(1L);
+    state.beginCommit(2L);
+    state.add("foo", 1000);
+    state.commit(2L);
+
+    // when
+    CountMinSketchState restored = (CountMinSketchState) newFactory().makeState(null, null, 0, 1);
+
+    // then
+    assertThat(Arrays.deepEquals(restored.table.toArray(), state.table.toArray())).isTrue();
+    assertThat(restored.size()).isEqualTo(state.size());
+    assertThat(restored.getTopKItems()).containsOnly(state.getTopKItems());
+  }
+
+  @Test
+  public void restartShouldDropUncommittedCounts() {
+    // given
+    CountMinSketchState state = (CountMinSketchState) newFactory().makeState(null, null, 0, 1);
+    state.beginCommit(1L);
+    state.add("foo", 5);
+    state.commit(1L);
+    state.beginCommit(2L);
+    state.add("foo", 7);
+
+    // when
+    CountMinSketchState restored = (CountMinSketchState) newFactory().makeState(null, null, 0, 1);
+
+    // then
+    assertThat(restored.estimateCount("foo")).isEqualTo(5);
+    assertThat(restored.size()).isEqualTo(5);
+  }
+
+  @Test
+  public void partitionsShouldNotShareSnapshots() {
+    // given
+    CountMinSketchState first = (CountMinSketchState) newFactory().makeState(null, null, 0, 2);
+    first.add("foo", 5);
+    first.commit(1L);
+
+    // when
+    CountMinSketchState second = (CountMinSketchState) newFactory().makeState(null, null, 1, 2);
+
+    // then
+    assertThat(second.estimateCount("foo")).isEqualTo(0);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void snapshotOfAnotherShapeShouldThrowIOException() throws IOException {
+    // given
+    File file = new File(dir, "sketch.snapshot");
+    new SnapshotFile(file, ANY_DEPTH, ANY_WIDTH);
+
+    // when
+    new SnapshotFile(file, ANY_DEPTH, ANY_WIDTH * 2);
+  }
+}
@@ -0,0 +1,121 @@
+package storm.starter.trident.project.countmin.state;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TopKTrackerTest {
+
+  @DataProvider
+  public Object[][] illegalKData() {
+    return new Object[][]{ { -1 }, { 0 } };
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class, dataProvider = "illegalKData")
+  public void negativeOrZeroKShouldThrowIAE(int k) {
+    new TopKTracker(k);
+  }
+
+  @Test
+  public void shouldAdmitItemsWhileThereIsRoom() {
+    // given
+    TopKTracker tracker = new TopKTracker(2);
+
+    // when
+    tracker.offer("foo", 1);
+
+    // then
+    assertThat(tracker.size()).isEqualTo(1);
+    assertThat(tracker.count("foo")).isEqualTo(1);
+    assertThat(tracker.minCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldEvictLowestCountWhenFull() {
+    // given
+    TopKTracker tracker = new TopKTracker(2);
+    tracker.offer("foo", 5);
+    tracker.offer("bar", 2);
+
+    // when
+    boolean admitted = tracker.offer("baz", 3);
+
+    // then
+    assertThat(admitted).isTrue();
+    assertThat(tracker.contains("bar")).isFalse();
+    assertThat(tracker.items()).containsOnly("foo", "baz");
+    assertThat(tracker.minCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldRejectItemsNotAboveLowestCount() {
+    // given
+    TopKTracker tracker = new TopKTracker(1);
+    tracker.offer("foo", 3);
+
+    // when
+    boolean admitted = tracker.offer("bar", 3);
+
+    // then
+    assertThat(admitted).isFalse();
+    assertThat(tracker.items()).containsOnly("foo");
+  }
+
+  @Test
+  public void updatingTrackedItemShouldReorderHeap() {
+    // given
+    TopKTracker tracker = new TopKTracker(3);
+    tracker.offer("foo", 1);
+    tracker.offer("bar", 2);
+    tracker.offer("baz", 3);
+
+    // when
+    tracker.offer("foo", 10);
+    tracker.offer("baz", 1);
+
+    // then
+    assertThat(tracker.size()).isEqualTo(3);
+    assertThat(tracker.count("foo")).isEqualTo(10);
+    assertThat(tracker.minCount()).isEqualTo(1);
+    tracker.offer("qux", 2);
+    assertThat(tracker.contains("baz")).isFalse();
+  }
+
+  @Test
+  public void removeShouldKeepRemainingItems() {
+    // given
+    TopKTracker tracker = new TopKTracker(3);
+    tracker.offer("foo", 1);
+    tracker.offer("bar", 2);
+    tracker.offer("baz", 3);
+
+    // when
+    tracker.remove("foo");
+
+    // then
+    assertThat(tracker.items()).containsOnly("bar", "baz");
+    assertThat(tracker.minCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void versionShouldOnlyChangeWithTheTopK() {
+    // given
+    TopKTracker tracker = new TopKTracker(1);
+    tracker.offer("foo", 5);
+    long version = tracker.version();
+
+    // when
+    tracker.offer("foo", 5);
+    tracker.offer("bar", 3);
+
+    // then
+    assertThat(tracker.version()).isEqualTo(version);
+
+    // when
+    tracker.offer("bar", 6);
+
+    // then
+    assertThat(tracker.version()).isNotEqualTo(version);
+  }
+}
@@ -0,0 +1,106 @@
+package storm.starter.trident.project.filters;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class StopWordDictionaryTest {
+
+  private File dir;
+
+  @BeforeMethod
+  public void createDir() throws IOException {
+    dir = File.createTempFile("stopwords", "");
+    dir.delete();
+    dir.mkdir();
+  }
+
+  @AfterMethod
+  public void deleteDir() {
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  private File write(String name, String content, long modified) throws IOException {
+    File file = new File(dir, name);
+    OutputStream out = new FileOutputStream(file);
+    out.write(content.getBytes("UTF-8"));
+    out.close();
+    file.setLastModified(modified);
+    return file;
+  }
+
+  @Test
+  public void shouldNameTheMatchingList() throws IOException {
+    // given
+    write("stopwords.txt", "the\nabout\n", 1000);
+    write("spam.txt", "# campaigns\n#followback\n", 1000);
+    write("notes.md", "music\n", 1000);
+
+    // when
+    StopWordDictionary dictionary = new StopWordDictionary(dir);
+
+    // then
+    assertThat(dictionary.listNames()).isEqualTo(Arrays.asList("spam", "stopwords"));
+    assertThat(dictionary.match("The")).isEqualTo("stopwords");
+    assertThat(dictionary.match("#FollowBack")).isEqualTo("spam");
+    assertThat(dictionary.match("music")).isNull();
+  }
+
+  @Test
+  public void reloadShouldSwapInChangedLists() throws IOException {
+    // given
+    write("spam.txt", "#followback\n", 1000);
+    StopWordDictionary dictionary = new StopWordDictionary(dir);
+
+    // when
+    boolean unchanged = dictionary.reload();
+    write("spam.txt", "#followback\n#teamfollow\n", 2000);
+    boolean changed = dictionary.reload();
+
+    // then
+    assertThat(unchanged).isFalse();
+    assertThat(changed).isTrue();
+    assertThat(dictionary.match("#teamfollow")).isEqualTo("spam");
+  }
+
+  @Test
+  public void reloadShouldPickUpNewLists() throws IOException {
+    // given
+    write("stopwords.txt", "the\n", 1000);
+    StopWordDictionary dictionary = new StopWordDictionary(dir);
+
+    // when
+    write("spam.txt", "#followback\n", 1000);
+    dictionary.reload();
+
+    // then
+    assertThat(dictionary.match("#followback")).isEqualTo("spam");
+    assertThat(dictionary.match("the")).isEqualTo("stopwords");
+  }
+
+  @Test
+  public void singleFileShouldBeOneList() throws IOException {
+    // when
+    StopWordDictionary dictionary = new StopWordDictionary(write("blocklist.txt", "spam\n", 1000));
+
+    // then
+    assertThat(dictionary.listNames()).isEqualTo(Arrays.asList("blocklist"));
+    assertThat(dictionary.match("SPAM")).isEqualTo("blocklist");
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void emptyDirectoryShouldThrowIOException() throws IOException {
+    new StopWordDictionary(dir);
+  }
+}
@@ -0,0 +1,64 @@
+package storm.starter.trident.project.filters;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class StopWordSetTest {
+
+  @Test
+  public void shouldMatchListedWordsInAnyCase() {
+    // given
+    StopWordSet stopWords = new StopWordSet(Arrays.asList("the", "You're", "about"));
+
+    // then
+    assertThat(stopWords.size()).isEqualTo(3);
+    assertThat(stopWords.contains("the")).isTrue();
+    assertThat(stopWords.contains("THE")).isTrue();
+    assertThat(stopWords.contains("you're")).isTrue();
+    assertThat(stopWords.contains(new StringBuilder("About"))).isTrue();
+  }
+
+  @Test
+  public void shouldNotMatchOtherWords() {
+    // given
+    StopWordSet stopWords = new StopWordSet(Arrays.asList("the", "about"));
+
+    // then
+    assertThat(stopWords.contains("then")).isFalse();
+    assertThat(stopWords.contains("th")).isFalse();
+    assertThat(stopWords.contains("music")).isFalse();
+    assertThat(stopWords.contains("")).isFalse();
+  }
+
+  @Test
+  public void shouldMatchARangeOfTheChars() {
+    // given
+    StopWordSet stopWords = new StopWordSet(Arrays.asList("the"));
+    String text = "love The music";
+
+    // then
+    assertThat(stopWords.contains(text, 5, 8)).isTrue();
+    assertThat(stopWords.contains(text, 5, 9)).isFalse();
+    assertThat(stopWords.contains(text, 0, 4)).isFalse();
+  }
+
+  @Test
+  public void shouldLoadTheDefaultResource() throws IOException {
+    // when
+    StopWordSet stopWords = StopWordSet.fromResource(StopWordFilter.DEFAULT_RESOURCE);
+
+    // then
+    assertThat(stopWords.size()).isGreaterThan(500);
+    assertThat(stopWords.contains("yourselves")).isTrue();
+    assertThat(stopWords.contains("# stop words")).isFalse();
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void missingResourceShouldThrowIOException() throws IOException {
+    StopWordSet.fromResource("resources/no-such-file.txt");
+  }
+}
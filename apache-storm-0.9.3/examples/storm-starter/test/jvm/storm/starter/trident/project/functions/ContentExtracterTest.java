@@ -0,0 +1,104 @@
+package storm.starter.trident.project.functions;
+
+import org.testng.annotations.Test;
+import twitter4j.HashtagEntity;
+import twitter4j.Status;
+import twitter4j.User;
+import twitter4j.UserMentionEntity;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ContentExtracterTest {
+
+  private static final long ANY_TWEET_ID = 99;
+  private static final long ANY_USER_ID = 7;
+
+  private Status mockTweet(String[] hashtags, long[] mentions) {
+    Status tweet = mock(Status.class);
+    User user = mock(User.class);
+    when(user.getId()).thenReturn(ANY_USER_ID);
+    when(tweet.getId()).thenReturn(ANY_TWEET_ID);
+    when(tweet.getUser()).thenReturn(user);
+    when(tweet.getCreatedAt()).thenReturn(new Date(1000));
+    HashtagEntity[] hashtagEntities = new HashtagEntity[hashtags.length];
+    for (int i = 0; i < hashtags.length; i++) {
+      hashtagEntities[i] = mock(HashtagEntity.class);
+      when(hashtagEntities[i].getText()).thenReturn(hashtags[i]);
+    }
+    when(tweet.getHashtagEntities()).thenReturn(hashtagEntities);
+    UserMentionEntity[] mentionEntities = new UserMentionEntity[mentions.length];
+    for (int i = 0; i < mentions.length; i++) {
+      mentionEntities[i] = mock(UserMentionEntity.class);
+      when(mentionEntities[i].getId()).thenReturn(mentions[i]);
+    }
+    when(tweet.getUserMentionEntities()).thenReturn(mentionEntities);
+    return tweet;
+  }
+
+  @Test
+  public void shouldKeepOneContentPerTypeAndName() {
+    // given
+    Status tweet = mockTweet(new String[]{ "Music", "music", "tbt" }, new long[]{ 5, 5 });
+    when(tweet.getInReplyToUserId()).thenReturn(5L);
+    List<Content> contents = new ArrayList<Content>();
+
+    // when
+    int added = new ContentExtracter().extract(tweet, contents);
+
+    // then
+    assertThat(added).isEqualTo(4);
+    assertThat(contents.get(0).getContentType()).isEqualTo("account_mentioned");
+    assertThat(contents.get(1).getContentType()).isEqualTo("reply_to_account");
+    assertThat(contents.get(2).getContentName()).isEqualTo("music");
+    assertThat(contents.get(3).getContentName()).isEqualTo("tbt");
+    assertThat(contents.get(3).getTweetId()).isEqualTo(ANY_TWEET_ID);
+    assertThat(contents.get(3).getUserId()).isEqualTo(ANY_USER_ID);
+    assertThat(contents.get(3).getCreatedAtMs()).isEqualTo(1000);
+  }
+
+  @Test
+  public void shouldForgetTheContentsOfThePreviousTweet() {
+    // given
+    ContentExtracter extracter = new ContentExtracter();
+    List<Content> contents = new ArrayList<Content>();
+    extracter.extract(mockTweet(new String[]{ "music" }, new long[0]), contents);
+
+    // when
+    contents.clear();
+    int added = extracter.extract(mockTweet(new String[]{ "music" }, new long[0]), contents);
+
+    // then
+    assertThat(added).isEqualTo(1);
+    assertThat(contents).hasSize(1);
+  }
+
+  @Test
+  public void idShouldFollowTypeAndName() {
+    // given
+    Content content = new Content(ANY_TWEET_ID, ANY_USER_ID, 1000);
+
+    // when
+    content.setContentType("hashtag");
+    content.setContentName("music");
+
+    // then
+    assertThat(content.getId()).isEqualTo(Content.idOf("hashtag", "music"));
+    assertThat(content.getId()).isNotEqualTo(Content.idOf("url", "music"));
+    assertThat(content.getId()).isNotEqualTo(Content.idOf("hashtag", "musi"));
+    assertThat(content.getContentId()).isEqualTo(Long.toHexString(content.getId()));
+  }
+
+  @Test
+  public void constructorShouldComputeTheId() {
+    // when
+    Content content = new Content(ANY_TWEET_ID, ANY_USER_ID, 1000, "hashtag", "music");
+
+    // then
+    assertThat(content.getId()).isEqualTo(Content.idOf("hashtag", "music"));
+  }
+}
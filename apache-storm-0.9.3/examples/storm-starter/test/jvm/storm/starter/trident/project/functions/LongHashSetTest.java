@@ -0,0 +1,36 @@
+package storm.starter.trident.project.functions;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class LongHashSetTest {
+
+  @Test
+  public void shouldBehaveLikeAHashSet() {
+    // given
+    LongHashSet set = new LongHashSet(4);
+    Set<Long> reference = new HashSet<Long>();
+    Random random = new Random(3);
+
+    for (int round = 0; round < 50; round++) {
+      // when
+      set.clear();
+      reference.clear();
+      for (int n = 0; n < 100; n++) {
+        long key = random.nextBoolean() ? random.nextInt(20) - 10 : random.nextLong();
+
+        // then
+        assertThat(set.add(key)).isEqualTo(reference.add(key));
+      }
+      assertThat(set.size()).isEqualTo(reference.size());
+      for (long key = -10; key < 10; key++) {
+        assertThat(set.contains(key)).isEqualTo(reference.contains(key));
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package storm.starter.trident.project.functions;
+
+import backtype.storm.tuple.Values;
+import org.testng.annotations.Test;
+import storm.trident.operation.TridentCollector;
+import storm.trident.tuple.TridentTuple;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+
+import static org.mockito.Mockito.*;
+
+public class ParseRawTweetTest {
+
+  private static final String ANY_TWEET = "{\"created_at\":\"Wed Aug 27 13:08:45 +0000 2008\","
+      + "\"id\":1234567890123456789,\"text\":\"Hello \\\"world\\\" #tbt\",\"truncated\":false,"
+      + "\"user\":{\"id\":42,\"screen_name\":\"alice\",\"entities\":{\"url\":{\"urls\":[{\"url\":\"http://t.co\"}]}}},"
+      + "\"geo\":null,\"retweeted_status\":{\"id\":1,\"text\":\"orig\",\"user\":{\"screen_name\":\"bob\"}},"
+      + "\"entities\":{\"hashtags\":[{\"text\":\"tbt\",\"indices\":[14,18]}]},\"lang\":\"en\"}";
+
+  private TridentTuple mockRawTuple(String json) throws UnsupportedEncodingException {
+    TridentTuple tuple = mock(TridentTuple.class);
+    when(tuple.getBinary(0)).thenReturn(json.getBytes("UTF-8"));
+    return tuple;
+  }
+
+  private ParseRawTweet prepared(String... paths) {
+    ParseRawTweet function = new ParseRawTweet(paths);
+    function.prepare(new HashMap(), null);
+    return function;
+  }
+
+  @Test
+  public void shouldEmitTheRequestedFieldsInOrder() throws Exception {
+    // given
+    TridentCollector collector = mock(TridentCollector.class);
+
+    // when
+    prepared("text", "id", "user.screen_name").execute(mockRawTuple(ANY_TWEET), collector);
+
+    // then
+    verify(collector).emit(new Values("Hello \"world\" #tbt", 1234567890123456789L, "alice"));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldConvertScalarsAndSkipNulls() throws Exception {
+    // given
+    TridentCollector collector = mock(TridentCollector.class);
+
+    // when
+    prepared("lang", "user.id", "truncated").execute(mockRawTuple(ANY_TWEET), collector);
+    // geo is null and user an object, neither is a value to emit.
+    prepared("lang", "geo").execute(mockRawTuple(ANY_TWEET), collector);
+    prepared("lang", "user").execute(mockRawTuple(ANY_TWEET), collector);
+
+    // then
+    verify(collector).emit(new Values("en", 42L, false));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldSkipMessagesMissingAField() throws Exception {
+    // given
+    TridentCollector collector = mock(TridentCollector.class);
+    ParseRawTweet function = prepared("text", "id", "user.screen_name");
+
+    // when
+    function.execute(mockRawTuple("{\"delete\":{\"status\":{\"id\":1,\"user_id\":3}}}"), collector);
+    function.execute(mockRawTuple("{\"text\":\"truncated"), collector);
+    function.execute(mockRawTuple("[1, 2]"), collector);
+
+    // then
+    verifyZeroInteractions(collector);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void fieldInsideAnotherShouldThrowIAE() {
+    prepared("user", "user.id");
+  }
+}
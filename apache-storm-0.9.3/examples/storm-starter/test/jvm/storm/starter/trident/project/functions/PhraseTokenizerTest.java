@@ -0,0 +1,92 @@
+package storm.starter.trident.project.functions;
+
+import backtype.storm.metric.api.MultiCountMetric;
+import backtype.storm.tuple.Values;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import storm.starter.trident.project.filters.StopWordFilter;
+import storm.trident.operation.TridentCollector;
+import storm.trident.operation.TridentOperationContext;
+
+import java.util.HashMap;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class PhraseTokenizerTest {
+
+  private PhraseTokenizer tokenizer;
+  private TridentCollector collector;
+
+  @BeforeMethod
+  public void prepare() {
+    TridentOperationContext context = mock(TridentOperationContext.class);
+    when(context.registerMetric(anyString(), any(MultiCountMetric.class), anyInt())).thenReturn(new MultiCountMetric());
+    tokenizer = new PhraseTokenizer(new StopWordFilter());
+    tokenizer.prepare(new HashMap(), context);
+    collector = mock(TridentCollector.class);
+  }
+
+  @Test
+  public void shouldEmitTheLowercaseBigramsAndTrigrams() {
+    // when
+    tokenizer.tokenize("World  Cup\nFinal", collector);
+
+    // then
+    verify(collector).emit(new Values("world cup"));
+    verify(collector).emit(new Values("cup final"));
+    verify(collector).emit(new Values("world cup final"));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldNotSpanStopWordsOrPunctuation() {
+    // when
+    tokenizer.tokenize("Heavy rain, snow and strong winds (storm watch)", collector);
+
+    // then
+    verify(collector).emit(new Values("heavy rain"));
+    verify(collector).emit(new Values("strong winds"));
+    verify(collector).emit(new Values("storm watch"));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldNotSpanMentionsOrUrls() {
+    // when
+    tokenizer.tokenize("RT @bob: breaking news https://t.co/x4Zq tonight", collector);
+
+    // then
+    verify(collector).emit(new Values("breaking news"));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldKeepHashtags() {
+    // when
+    tokenizer.tokenize("#Throwback Thursday #", collector);
+
+    // then
+    verify(collector).emit(new Values("#throwback thursday"));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldStartEveryTextWithANewPhrase() {
+    // given
+    tokenizer.tokenize("happy", collector);
+
+    // when
+    tokenizer.tokenize("birthday", collector);
+
+    // then
+    verifyZeroInteractions(collector);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void shouldRejectPhrasesOfOneWord() {
+    new PhraseTokenizer(new StopWordFilter(), 1, 3);
+  }
+}
@@ -0,0 +1,83 @@
+package storm.starter.trident.project.functions;
+
+import backtype.storm.metric.api.MultiCountMetric;
+import backtype.storm.tuple.Values;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import storm.starter.trident.project.filters.StopWordFilter;
+import storm.trident.operation.TridentCollector;
+import storm.trident.operation.TridentOperationContext;
+import storm.trident.tuple.TridentTuple;
+
+import java.util.HashMap;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class TweetTokenizerTest {
+
+  private TweetTokenizer tokenizer;
+  private TridentCollector collector;
+
+  @BeforeMethod
+  public void prepare() {
+    TridentOperationContext context = mock(TridentOperationContext.class);
+    when(context.registerMetric(anyString(), any(MultiCountMetric.class), anyInt())).thenReturn(new MultiCountMetric());
+    tokenizer = new TweetTokenizer(new StopWordFilter());
+    tokenizer.prepare(new HashMap(), context);
+    collector = mock(TridentCollector.class);
+  }
+
+  private TridentTuple mockTweetTuple(String text, String user) {
+    TridentTuple tuple = mock(TridentTuple.class);
+    when(tuple.getString(0)).thenReturn(text);
+    when(tuple.getString(1)).thenReturn(user);
+    return tuple;
+  }
+
+  @Test
+  public void shouldEmitTheLowercaseWordsOfUserAndText() {
+    // when
+    tokenizer.execute(mockTweetTuple("Loving this Music #TBT2015", "alice"), collector);
+
+    // then
+    verify(collector).emit(new Values("alice:"));
+    verify(collector).emit(new Values("loving"));
+    verify(collector).emit(new Values("music"));
+    verify(collector).emit(new Values("#tbt2015"));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldDropShortWordsAndShortTags() {
+    // when
+    tokenizer.execute(mockTweetTuple("RT lol @bob #abc #abcd", "bo"), collector);
+
+    // then
+    verify(collector).emit(new Values("#abcd"));
+    verifyNoMoreInteractions(collector);
+  }
+
+  @Test
+  public void shouldDropStopWordsInAnyCase() {
+    // when
+    tokenizer.execute(mockTweetTuple("About THESE yourselves", "bo"), collector);
+
+    // then
+    verifyZeroInteractions(collector);
+  }
+
+  @Test
+  public void shouldSplitOnAnyWhitespace() {
+    // when
+    tokenizer.execute(mockTweetTuple("  music\n\nmovie\tnight  ", "bo"), collector);
+
+    // then
+    verify(collector).emit(new Values("music"));
+    verify(collector).emit(new Values("movie"));
+    verify(collector).emit(new Values("night"));
+    verifyNoMoreInteractions(collector);
+  }
+}